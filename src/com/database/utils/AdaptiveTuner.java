@@ -0,0 +1,221 @@
+package com.database.utils;
+
+import java.math.BigDecimal;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Adaptive controller for ResultSet fetch size and insert batch size.
+ *
+ * <p>
+ *     Read and write paths report how many rows and bytes each round trip moved and
+ *     how long it took. The controller keeps a smoothed time per row and grows or
+ *     shrinks the sizes toward the target latency per round trip, within the bounds,
+ *     and never above the byte budget per round trip, so wide tables use small
+ *     fetches and narrow tables large ones without hand tuning.
+ *     <br>
+ *     Sizes change at most by a factor of two per round trip to stay stable.
+ *     <br>
+ *     Tuned reads use a forward only server cursor, since mssql-jdbc only honours the fetch
+ *     size for server cursors, so every fetch is one round trip of fetch size rows. Fetch
+ *     time is only measured inside ResultSet.next(), where the driver waits for those
+ *     round trips, not in the code handling the rows.
+ *     <br>
+ *     Thread safe, one tuner can be shared by several readers and writers of the same table.
+ * </p>
+ */
+public class AdaptiveTuner {
+    // Weight of the newest sample in the moving averages
+    private static final double SMOOTHING = 0.3;
+    private static final int MAX_STEP = 2;
+
+    /**
+     * Limits for the tuned values
+     *
+     * @param minFetchSize          smallest fetch size
+     * @param maxFetchSize          largest fetch size
+     * @param minBatchSize          smallest insert batch
+     * @param maxBatchSize          largest insert batch
+     * @param targetRoundTripMillis latency aimed for per round trip
+     * @param maxBytesPerRoundTrip  memory budget per fetch or batch
+     */
+    public record Bounds(int minFetchSize, int maxFetchSize, int minBatchSize, int maxBatchSize,
+                         long targetRoundTripMillis, long maxBytesPerRoundTrip) {
+        public Bounds {
+            if (minFetchSize < 1 || maxFetchSize < minFetchSize) {
+                throw new IllegalArgumentException("Invalid fetch size bounds");
+            }
+            if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+                throw new IllegalArgumentException("Invalid batch size bounds");
+            }
+            if (targetRoundTripMillis < 1 || maxBytesPerRoundTrip < 1) {
+                throw new IllegalArgumentException("Target latency and byte budget must be positive");
+            }
+        }
+
+        /**
+         * 10 to 10000 rows per fetch, 10 to 5000 rows per batch, 100ms and 8MB per round trip
+         *
+         * @return default bounds
+         */
+        public static Bounds defaults() {
+            return new Bounds(10, 10_000, 10, 5_000, 100, 8L * 1024 * 1024);
+        }
+    }
+
+    /**
+     * Snapshot of the chosen values and the measurements behind them
+     *
+     * @param fetchSize            current fetch size
+     * @param batchSize            current batch size
+     * @param bytesPerRow          smoothed row width in bytes
+     * @param fetchRoundTripMillis smoothed latency of a fetch
+     * @param batchRoundTripMillis smoothed latency of a batch
+     * @param rowsRead             rows reported by readers
+     * @param rowsWritten          rows reported by writers
+     */
+    public record Metrics(int fetchSize, int batchSize, double bytesPerRow,
+                          double fetchRoundTripMillis, double batchRoundTripMillis,
+                          long rowsRead, long rowsWritten) {
+    }
+
+    private final Bounds bounds;
+    private volatile int fetchSize;
+    private volatile int batchSize;
+
+    private double bytesPerRow;
+    private double fetchNanosPerRow;
+    private double batchNanosPerRow;
+    private double fetchRoundTripMillis;
+    private double batchRoundTripMillis;
+    private long rowsRead;
+    private long rowsWritten;
+
+    public AdaptiveTuner() {
+        this(Bounds.defaults());
+    }
+
+    /**
+     * Create a tuner starting from the smallest sizes
+     *
+     * @param bounds
+     */
+    public AdaptiveTuner(Bounds bounds) {
+        this.bounds = bounds;
+        this.fetchSize = bounds.minFetchSize();
+        this.batchSize = bounds.minBatchSize();
+    }
+
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Report a completed fetch round trip
+     *
+     * @param rows         rows received
+     * @param bytes        estimated bytes received
+     * @param elapsedNanos time spent
+     */
+    public synchronized void recordFetch(int rows, long bytes, long elapsedNanos) {
+        if (rows <= 0) {
+            return;
+        }
+        updateBytesPerRow(rows, bytes);
+        fetchNanosPerRow = smooth(fetchNanosPerRow, (double) elapsedNanos / rows);
+        fetchRoundTripMillis = smooth(fetchRoundTripMillis, elapsedNanos / 1_000_000.0);
+        rowsRead += rows;
+        fetchSize = nextSize(fetchSize, fetchNanosPerRow, bounds.minFetchSize(), bounds.maxFetchSize());
+    }
+
+    /**
+     * Report a completed batch round trip
+     *
+     * @param rows         rows sent
+     * @param bytes        estimated bytes sent
+     * @param elapsedNanos time spent
+     */
+    public synchronized void recordBatch(int rows, long bytes, long elapsedNanos) {
+        if (rows <= 0) {
+            return;
+        }
+        updateBytesPerRow(rows, bytes);
+        batchNanosPerRow = smooth(batchNanosPerRow, (double) elapsedNanos / rows);
+        batchRoundTripMillis = smooth(batchRoundTripMillis, elapsedNanos / 1_000_000.0);
+        rowsWritten += rows;
+        batchSize = nextSize(batchSize, batchNanosPerRow, bounds.minBatchSize(), bounds.maxBatchSize());
+    }
+
+    public synchronized Metrics getMetrics() {
+        return new Metrics(fetchSize, batchSize, bytesPerRow,
+                fetchRoundTripMillis, batchRoundTripMillis, rowsRead, rowsWritten);
+    }
+
+    private void updateBytesPerRow(int rows, long bytes) {
+        if (bytes > 0) {
+            bytesPerRow = smooth(bytesPerRow, (double) bytes / rows);
+        }
+    }
+
+    private int nextSize(int current, double nanosPerRow, int min, int max) {
+        double targetNanos = bounds.targetRoundTripMillis() * 1_000_000.0;
+        double ideal = targetNanos / Math.max(nanosPerRow, 1.0);
+        if (bytesPerRow > 0) {
+            ideal = Math.min(ideal, bounds.maxBytesPerRoundTrip() / bytesPerRow);
+        }
+        // Limit the step so one slow round trip does not collapse the size
+        ideal = Math.max(ideal, (double) current / MAX_STEP);
+        ideal = Math.min(ideal, (double) current * MAX_STEP);
+        return (int) Math.max(min, Math.min(max, Math.round(ideal)));
+    }
+
+    private static double smooth(double average, double sample) {
+        return average == 0 ? sample : average + SMOOTHING * (sample - average);
+    }
+
+    /**
+     * Rough size of a value as transferred by the driver
+     *
+     * @param value
+     * @return estimated bytes
+     */
+    static long estimateSize(Object value) {
+        return switch (value) {
+            case null -> 1;
+            case String s -> 2L * s.length();
+            case byte[] b -> b.length;
+            case Integer i -> 4;
+            case Long l -> 8;
+            case Double d -> 8;
+            case Float f -> 4;
+            case Boolean b -> 1;
+            case BigDecimal d -> 17;
+            default -> 8;
+        };
+    }
+
+    /**
+     * Rough width of a row from its metadata, used when values are not materialised
+     *
+     * @param metaData
+     * @return estimated bytes per row
+     * @throws SQLException
+     */
+    static long estimateRowSize(ResultSetMetaData metaData) throws SQLException {
+        long size = 0;
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            int displaySize = metaData.getColumnDisplaySize(i);
+            // MAX columns report huge sizes, count them as one inline page
+            size += displaySize <= 0 ? 8 : Math.min(displaySize, 8000);
+        }
+        return size;
+    }
+}
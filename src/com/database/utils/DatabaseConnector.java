@@ -108,7 +108,9 @@ public class DatabaseConnector {
                 "user=%s;" +
                 "password=%s" +
                 "encrypt=true;" +
-                "trustServerCertificate=true;", ipAddress, databaseName, user, password);
+                "trustServerCertificate=true;" +
+                // stream large values instead of buffering whole responses
+                "responseBuffering=adaptive;", ipAddress, databaseName, user, password);
 
         try {
             Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
@@ -0,0 +1,693 @@
+package com.database.utils;
+
+import com.microsoft.sqlserver.jdbc.ISQLServerBulkData;
+import com.microsoft.sqlserver.jdbc.SQLServerBulkCopy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports delimited or fixed-width UTF-8 files into a table.
+ *
+ * <p>
+ *     The file is split into chunks on line boundaries and every chunk is memory-mapped
+ *     and parsed in parallel straight from the mapping, without building line Strings.
+ *     Numbers are parsed from the bytes, only text, decimal and date values are decoded.
+ *     <br>
+ *     Field types come from the {@link SQLStatements.Column} definitions of the table
+ *     or from its metadata. Without definitions the file holds the columns in table order,
+ *     leaving out identity, computed and rowversion columns. Parsed chunks are written in
+ *     file order to the named columns with batched inserts sized by an {@link AdaptiveTuner},
+ *     or with SQL Server bulk copy.
+ *     <br>
+ *     The first failed write stops the import. Chunks written before it stay in the table.
+ *     <br>
+ *     Delimited fields may be quoted with doubled quotes inside, but must not contain
+ *     line breaks. Empty unquoted fields are imported as NULL. Binary columns are read
+ *     as hex with an optional 0x prefix, the CSV form of {@link TableExporter}.
+ * </p>
+ */
+public class FileImporter {
+    private static final long DEFAULT_CHUNK_SIZE = 32L * 1024 * 1024;
+    private static final int BOUNDARY_SCAN_SIZE = 64 * 1024;
+    private static final String NON_INSERTABLE_SQL = "SELECT c.name FROM sys.columns c " +
+            "JOIN sys.types ty ON ty.user_type_id = c.user_type_id " +
+            "WHERE c.object_id = OBJECT_ID(?) AND (c.is_identity = 1 OR c.is_computed = 1 OR ty.name = 'timestamp')";
+
+    private enum ValueType {
+        INTEGER,
+        LONG,
+        DECIMAL,
+        DOUBLE,
+        BOOLEAN,
+        DATE,
+        TIMESTAMP,
+        BINARY,
+        STRING
+    }
+
+    private record Field(String name, ValueType type, int jdbcType, int precision, int scale) {
+    }
+
+    private final byte delimiter;
+    private final int[] widths;
+    private boolean skipHeader;
+    private SQLStatements.Column[] columns;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean useBulkCopy;
+    private AdaptiveTuner tuner = new AdaptiveTuner();
+
+    private FileImporter(byte delimiter, int[] widths) {
+        this.delimiter = delimiter;
+        this.widths = widths;
+    }
+
+    /**
+     * Importer for files with one record per line and separated fields
+     *
+     * @param delimiter single byte separator like ',' ';' or '\t'
+     * @return importer
+     */
+    public static FileImporter delimited(char delimiter) {
+        if (delimiter > 0x7F || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+        }
+        return new FileImporter((byte) delimiter, null);
+    }
+
+    /**
+     * Importer for files with one record per line and fields of fixed byte widths
+     *
+     * @param widths width of every field, values are trimmed
+     * @return importer
+     */
+    public static FileImporter fixedWidth(int... widths) {
+        for (int width : widths) {
+            if (width < 1) {
+                throw new IllegalArgumentException("Field widths must be positive");
+            }
+        }
+        return new FileImporter((byte) 0, widths.clone());
+    }
+
+    /**
+     * Skip the first line of the file
+     *
+     * @param skipHeader
+     * @return this importer
+     */
+    public FileImporter skipHeader(boolean skipHeader) {
+        this.skipHeader = skipHeader;
+        return this;
+    }
+
+    /**
+     * Take the field names and types from column definitions instead of the table metadata
+     *
+     * @param columns definitions in file order, like the ones used to create the table
+     * @return this importer
+     */
+    public FileImporter columns(SQLStatements.Column[] columns) {
+        this.columns = columns.clone();
+        return this;
+    }
+
+    /**
+     * Number of chunks parsed at the same time
+     *
+     * @param parallelism
+     * @return this importer
+     */
+    public FileImporter parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Approximate bytes per chunk, chunks end on a line boundary
+     *
+     * @param chunkSize
+     * @return this importer
+     */
+    public FileImporter chunkSize(long chunkSize) {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE - BOUNDARY_SCAN_SIZE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Write with SQL Server bulk copy instead of batched inserts
+     *
+     * @param useBulkCopy
+     * @return this importer
+     */
+    public FileImporter useBulkCopy(boolean useBulkCopy) {
+        this.useBulkCopy = useBulkCopy;
+        return this;
+    }
+
+    /**
+     * Tuner choosing the batch size of batched inserts
+     *
+     * @param tuner
+     * @return this importer
+     */
+    public FileImporter tunedBy(AdaptiveTuner tuner) {
+        this.tuner = tuner;
+        return this;
+    }
+
+    /**
+     * Import a file into a table
+     *
+     * @param conn
+     * @param tableName
+     * @param file
+     * @return number of rows written, -1 if the import failed
+     */
+    public long importFile(Connection conn, String tableName, Path file) {
+        long imported = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        SQLServerBulkCopy bulkCopy = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Field[] fields = columns != null ? fieldsFromColumns(columns) : fieldsFromTable(conn, tableName);
+            if (widths != null && widths.length != fields.length) {
+                throw new IllegalArgumentException(String.format("%d field widths for %d columns",
+                        widths.length, fields.length));
+            }
+            if (useBulkCopy) {
+                bulkCopy = new SQLServerBulkCopy(conn);
+                bulkCopy.setDestinationTableName(SelectQuery.quoteIdentifier(tableName));
+                for (int i = 0; i < fields.length; i++) {
+                    bulkCopy.addColumnMapping(i + 1, fields[i].name());
+                }
+            }
+
+            List<long[]> chunks = splitChunks(channel);
+            // a bounded window of parsed chunks keeps memory flat on huge files
+            Deque<Future<List<Object[]>>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < chunks.size() || !pending.isEmpty()) {
+                while (next < chunks.size() && pending.size() < parallelism + 1) {
+                    long[] chunk = chunks.get(next);
+                    boolean isFirst = next == 0;
+                    pending.add(executor.submit(() -> parseChunk(channel, chunk[0], chunk[1], isFirst, fields)));
+                    next++;
+                }
+                List<Object[]> rows = pending.poll().get();
+                imported += write(conn, tableName, fields, rows, bulkCopy);
+            }
+            System.out.println(String.format("Imported %d rows from %s into %s", imported, file, tableName));
+            return imported;
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            System.err.println("Error importing " + file + ": " + e.getMessage());
+        } catch (ExecutionException e) {
+            System.err.println("Error parsing " + file + ": " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted importing " + file);
+        } finally {
+            executor.shutdownNow();
+            if (bulkCopy != null) {
+                bulkCopy.close();
+            }
+        }
+        System.err.println(String.format("Import of %s stopped, %d rows were written to %s before the failed chunk",
+                file, imported, tableName));
+        return -1;
+    }
+
+    private long write(Connection conn, String tableName, Field[] fields, List<Object[]> rows,
+                       SQLServerBulkCopy bulkCopy) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        if (bulkCopy == null) {
+            String[] columnNames = new String[fields.length];
+            int[] sqlTypes = new int[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                columnNames[i] = fields[i].name();
+                sqlTypes[i] = fields[i].jdbcType();
+            }
+            return SQLStatements.insertRegistersOrThrow(conn, tableName, columnNames, sqlTypes, rows, tuner);
+        }
+        bulkCopy.writeToServer(new RowsBulkData(fields, rows));
+        return rows.size();
+    }
+
+    /**
+     * Split the file in chunks of about chunkSize bytes, each ending right after a line break
+     */
+    private List<long[]> splitChunks(FileChannel channel) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        long size = channel.size();
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            if (end < size) {
+                end = nextLineStart(channel, end, scan);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer scan) throws IOException {
+        long size = channel.size();
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Map one chunk and parse its records
+     */
+    private List<Object[]> parseChunk(FileChannel channel, long start, long end, boolean isFirst,
+                                      Field[] fields) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int limit = buffer.limit();
+        List<Object[]> rows = new ArrayList<>();
+        byte[] scratch = new byte[256];
+        int position = 0;
+        if (isFirst && skipHeader) {
+            position = lineEnd(buffer, 0, limit) + 1;
+        }
+
+        while (position < limit) {
+            int lineEnd = lineEnd(buffer, position, limit);
+            int recordEnd = lineEnd;
+            if (recordEnd > position && buffer.get(recordEnd - 1) == '\r') {
+                recordEnd--;
+            }
+            if (recordEnd > position) {
+                Object[] row = new Object[fields.length];
+                try {
+                    scratch = widths != null
+                            ? parseFixedWidth(buffer, position, recordEnd, fields, row, scratch)
+                            : parseDelimited(buffer, position, recordEnd, fields, row, scratch);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(String.format("Invalid record at byte %d: %s",
+                            start + position, e.getMessage()), e);
+                }
+                rows.add(row);
+            }
+            position = lineEnd + 1;
+        }
+        return rows;
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int position, int limit) {
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    private byte[] parseDelimited(ByteBuffer buffer, int position, int recordEnd, Field[] fields,
+                                  Object[] row, byte[] scratch) {
+        int field = 0;
+        while (true) {
+            if (field >= fields.length) {
+                throw new IllegalArgumentException("more than " + fields.length + " fields");
+            }
+            int end;
+            if (position < recordEnd && buffer.get(position) == '"') {
+                // quoted value, "" stands for one quote
+                int valueStart = position + 1;
+                int i = valueStart;
+                boolean hasEscapes = false;
+                while (true) {
+                    if (i >= recordEnd) {
+                        throw new IllegalArgumentException("unterminated quoted field");
+                    }
+                    if (buffer.get(i) == '"') {
+                        if (i + 1 < recordEnd && buffer.get(i + 1) == '"') {
+                            hasEscapes = true;
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                scratch = ensureScratch(scratch, i - valueStart);
+                String text = decode(buffer, valueStart, i, scratch);
+                row[field] = convert(hasEscapes ? text.replace("\"\"", "\"") : text, fields[field]);
+                end = i + 1;
+                if (end < recordEnd && buffer.get(end) != delimiter) {
+                    throw new IllegalArgumentException("unexpected data after quoted field");
+                }
+            } else {
+                end = position;
+                while (end < recordEnd && buffer.get(end) != delimiter) {
+                    end++;
+                }
+                scratch = ensureScratch(scratch, end - position);
+                row[field] = convert(buffer, position, end, fields[field], scratch);
+            }
+            field++;
+            if (end >= recordEnd) {
+                break;
+            }
+            position = end + 1;
+        }
+        if (field != fields.length) {
+            throw new IllegalArgumentException(String.format("%d fields, expected %d", field, fields.length));
+        }
+        return scratch;
+    }
+
+    private byte[] parseFixedWidth(ByteBuffer buffer, int position, int recordEnd, Field[] fields,
+                                   Object[] row, byte[] scratch) {
+        for (int field = 0; field < fields.length; field++) {
+            int start = Math.min(position, recordEnd);
+            int end = Math.min(position + widths[field], recordEnd);
+            scratch = ensureScratch(scratch, end - start);
+            row[field] = convert(buffer, start, end, fields[field], scratch);
+            position += widths[field];
+        }
+        return scratch;
+    }
+
+    /**
+     * Convert an unquoted value straight from the mapped bytes
+     */
+    private Object convert(ByteBuffer buffer, int start, int end, Field field, byte[] scratch) {
+        // fixed width fields and numbers are often padded, delimited text is kept as is
+        if (widths != null || field.type() != ValueType.STRING) {
+            while (start < end && buffer.get(start) == ' ') {
+                start++;
+            }
+            while (end > start && buffer.get(end - 1) == ' ') {
+                end--;
+            }
+        }
+        if (start == end) {
+            return null;
+        }
+        try {
+            return switch (field.type()) {
+                case INTEGER -> Math.toIntExact(parseLong(buffer, start, end));
+                case LONG -> parseLong(buffer, start, end);
+                case BINARY -> parseHex(buffer, start, end);
+                default -> convert(decode(buffer, start, end, scratch), field);
+            };
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("'%s' is not a valid %s for column %s",
+                    decode(buffer, start, end, scratch), field.type(), field.name()), e);
+        }
+    }
+
+    private static Object convert(String text, Field field) {
+        try {
+            return switch (field.type()) {
+                case INTEGER -> Integer.parseInt(text.trim());
+                case LONG -> Long.parseLong(text.trim());
+                case DECIMAL -> new BigDecimal(text.trim());
+                case DOUBLE -> Double.parseDouble(text.trim());
+                case BOOLEAN -> parseBoolean(text.trim());
+                case DATE -> Date.valueOf(text.trim());
+                case TIMESTAMP -> Timestamp.valueOf(text.trim().replace('T', ' '));
+                case BINARY -> parseHex(text.trim());
+                case STRING -> text;
+            };
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("'%s' is not a valid %s for column %s",
+                    text, field.type(), field.name()), e);
+        }
+    }
+
+    private static long parseLong(ByteBuffer buffer, int start, int end) {
+        boolean negative = buffer.get(start) == '-';
+        int position = negative || buffer.get(start) == '+' ? start + 1 : start;
+        if (position == end) {
+            throw new NumberFormatException("no digits");
+        }
+        // accumulate negatively so Long.MIN_VALUE parses
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = buffer.get(position) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("invalid digit in number");
+            }
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("number out of range");
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw new NumberFormatException("number out of range");
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Binary values are hex with an optional 0x prefix, as written by {@link TableExporter}
+     */
+    private static byte[] parseHex(ByteBuffer buffer, int start, int end) {
+        if (end - start >= 2 && buffer.get(start) == '0' && (buffer.get(start + 1) | 0x20) == 'x') {
+            start += 2;
+        }
+        if ((end - start) % 2 != 0) {
+            throw new NumberFormatException("odd number of hex digits");
+        }
+        byte[] value = new byte[(end - start) / 2];
+        for (int i = 0; i < value.length; i++) {
+            int high = Character.digit(buffer.get(start + 2 * i), 16);
+            int low = Character.digit(buffer.get(start + 2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new NumberFormatException("invalid hex digit");
+            }
+            value[i] = (byte) (high << 4 | low);
+        }
+        return value;
+    }
+
+    private static byte[] parseHex(String text) {
+        boolean prefixed = text.length() >= 2 && text.charAt(0) == '0'
+                && (text.charAt(1) == 'x' || text.charAt(1) == 'X');
+        return HexFormat.of().parseHex(prefixed ? text.substring(2) : text);
+    }
+
+    private static Boolean parseBoolean(String text) {
+        return switch (text.toLowerCase(Locale.ROOT)) {
+            case "1", "true", "yes" -> true;
+            case "0", "false", "no" -> false;
+            default -> throw new IllegalArgumentException("invalid boolean");
+        };
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end, byte[] scratch) {
+        int length = end - start;
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ensureScratch(byte[] scratch, int length) {
+        return scratch.length >= length ? scratch : new byte[Math.max(length, scratch.length * 2)];
+    }
+
+    /**
+     * Fields from column definitions like INT, DECIMAL(10,2) or NVARCHAR(100)
+     */
+    private static Field[] fieldsFromColumns(SQLStatements.Column[] columns) {
+        Field[] fields = new Field[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            String type = columns[i].type().trim().toUpperCase(Locale.ROOT);
+            int open = type.indexOf('(');
+            String baseType = open < 0 ? type : type.substring(0, open).trim();
+            int precision = 0;
+            int scale = 0;
+            if (open >= 0) {
+                int close = type.indexOf(')', open);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Invalid column type: " + columns[i].type());
+                }
+                String[] arguments = type.substring(open + 1, close).split(",");
+                precision = arguments[0].trim().equals("MAX") ? Integer.MAX_VALUE : Integer.parseInt(arguments[0].trim());
+                scale = arguments.length > 1 ? Integer.parseInt(arguments[1].trim()) : 0;
+            }
+            int jdbcType = switch (baseType) {
+                case "TINYINT" -> Types.TINYINT;
+                case "SMALLINT" -> Types.SMALLINT;
+                case "INT", "INTEGER" -> Types.INTEGER;
+                case "BIGINT" -> Types.BIGINT;
+                case "DECIMAL", "NUMERIC", "MONEY", "SMALLMONEY" -> Types.DECIMAL;
+                case "FLOAT", "REAL" -> Types.DOUBLE;
+                case "BIT" -> Types.BIT;
+                case "DATE" -> Types.DATE;
+                case "DATETIME", "DATETIME2", "SMALLDATETIME" -> Types.TIMESTAMP;
+                case "CHAR", "VARCHAR", "TEXT" -> Types.VARCHAR;
+                case "BINARY", "VARBINARY", "IMAGE" -> Types.VARBINARY;
+                default -> Types.NVARCHAR;
+            };
+            if (jdbcType == Types.DECIMAL && precision == 0) {
+                precision = 38;
+            }
+            fields[i] = new Field(columns[i].name(), valueType(jdbcType), jdbcType, precision, scale);
+        }
+        return fields;
+    }
+
+    /**
+     * Fields from the metadata of an empty query over the table, without the columns
+     * SQL Server fills itself
+     */
+    private static Field[] fieldsFromTable(Connection conn, String tableName) throws SQLException {
+        Set<String> nonInsertable = nonInsertableColumns(conn, tableName);
+        List<Field> fields = new ArrayList<>();
+        SelectQuery.from(tableName).top(0).streamOrThrow(conn, new SQLStatements.RowHandler() {
+            @Override
+            public void start(StreamingRow row) throws SQLException {
+                ResultSetMetaData metaData = row.getResultSet().getMetaData();
+                for (int i = 1; i <= row.getColumnCount(); i++) {
+                    if (metaData.isAutoIncrement(i) || nonInsertable.contains(metaData.getColumnName(i))) {
+                        continue;
+                    }
+                    int jdbcType = metaData.getColumnType(i);
+                    fields.add(new Field(metaData.getColumnName(i), valueType(jdbcType), jdbcType,
+                            metaData.getPrecision(i), metaData.getScale(i)));
+                }
+            }
+
+            @Override
+            public void handle(StreamingRow row) {
+            }
+        });
+        if (fields.isEmpty()) {
+            throw new SQLException("No insertable columns in " + tableName);
+        }
+        return fields.toArray(new Field[0]);
+    }
+
+    /**
+     * Identity, computed and rowversion columns of a table
+     */
+    private static Set<String> nonInsertableColumns(Connection conn, String tableName) throws SQLException {
+        Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        try (PreparedStatement ps = conn.prepareStatement(NON_INSERTABLE_SQL)) {
+            ps.setString(1, tableName);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        return names;
+    }
+
+    private static ValueType valueType(int jdbcType) {
+        return switch (jdbcType) {
+            case Types.TINYINT, Types.SMALLINT, Types.INTEGER -> ValueType.INTEGER;
+            case Types.BIGINT -> ValueType.LONG;
+            case Types.DECIMAL, Types.NUMERIC -> ValueType.DECIMAL;
+            case Types.FLOAT, Types.REAL, Types.DOUBLE -> ValueType.DOUBLE;
+            case Types.BIT, Types.BOOLEAN -> ValueType.BOOLEAN;
+            case Types.DATE -> ValueType.DATE;
+            case Types.TIMESTAMP -> ValueType.TIMESTAMP;
+            case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> ValueType.BINARY;
+            default -> ValueType.STRING;
+        };
+    }
+
+    /**
+     * Parsed rows of a chunk as a bulk copy source
+     */
+    private static class RowsBulkData implements ISQLServerBulkData {
+        private static final long serialVersionUID = 1L;
+
+        private final Field[] fields;
+        private final List<Object[]> rows;
+        private int index = -1;
+
+        RowsBulkData(Field[] fields, List<Object[]> rows) {
+            this.fields = fields;
+            this.rows = rows;
+        }
+
+        @Override
+        public Set<Integer> getColumnOrdinals() {
+            Set<Integer> ordinals = new LinkedHashSet<>();
+            for (int i = 1; i <= fields.length; i++) {
+                ordinals.add(i);
+            }
+            return ordinals;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return fields[column - 1].name();
+        }
+
+        @Override
+        public int getColumnType(int column) {
+            return fields[column - 1].jdbcType();
+        }
+
+        @Override
+        public int getPrecision(int column) {
+            return fields[column - 1].precision();
+        }
+
+        @Override
+        public int getScale(int column) {
+            return fields[column - 1].scale();
+        }
+
+        @Override
+        public Object[] getRowData() {
+            return rows.get(index);
+        }
+
+        @Override
+        public boolean next() {
+            return ++index < rows.size();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.database.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Streams only the rows changed since the last poll, using a per table high-water mark.
+ *
+ * <p>
+ *     The watermark column must be unique and only grow, like a rowversion / timestamp
+ *     column or an identity key. Rows are read in watermark order and the mark only moves
+ *     past rows the handler finished, so a failed poll is resumed from the last good row.
+ *     <br>
+ *     For rowversion columns rows are read up to MIN_ACTIVE_ROWVERSION(), so changes of
+ *     transactions still open are picked up by a later poll instead of being skipped.
+ *     <br>
+ *     Marks are persisted after every poll in a small properties file, one per table and
+ *     watermark column.
+ *     The watermark column is always returned as column 1, followed by the other
+ *     columns in table order.
+ * </p>
+ */
+public class IncrementalReader {
+    private static final String ROWVERSION_TYPE = "timestamp";
+    private static final String COLUMNS_SQL = "SELECT c.name, ty.name FROM sys.columns c " +
+            "JOIN sys.types ty ON ty.user_type_id = c.user_type_id " +
+            "WHERE c.object_id = OBJECT_ID(?) ORDER BY c.column_id";
+
+    private record WatermarkColumn(String[] columnOrder, boolean isRowversion) {
+    }
+
+    private final Connection conn;
+    private final Path watermarkFile;
+    private final Properties watermarks = new Properties();
+    private final Map<String, WatermarkColumn> columnsByTable = new HashMap<>();
+
+    /**
+     * Create a reader, existing marks are loaded from the file
+     *
+     * @param conn
+     * @param watermarkFile properties file holding one mark per table, created on first poll
+     */
+    public IncrementalReader(Connection conn, Path watermarkFile) {
+        this.conn = conn;
+        this.watermarkFile = watermarkFile;
+        if (Files.exists(watermarkFile)) {
+            try (Reader reader = Files.newBufferedReader(watermarkFile)) {
+                watermarks.load(reader);
+            } catch (IOException e) {
+                System.err.println("Error loading watermarks: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stream the rows changed since the last poll of a table and advance its mark
+     *
+     * @param tableName
+     * @param watermarkColumn unique, ever increasing column
+     * @param handler         called for every changed row, in watermark order
+     * @return number of rows handled
+     */
+    public long poll(String tableName, String watermarkColumn, SQLStatements.RowHandler handler) {
+        WatermarkColumn column;
+        try {
+            column = describe(tableName, watermarkColumn);
+        } catch (SQLException e) {
+            System.err.println("SQL Exception: " + e.getMessage());
+            return 0;
+        }
+
+        SelectQuery query = SelectQuery.from(tableName)
+                .columns(column.columnOrder())
+                .orderBy(watermarkColumn, true);
+        Object mark = getWatermark(tableName, watermarkColumn);
+        if (mark != null) {
+            query.where(watermarkColumn, SelectQuery.Operator.GT, mark);
+        }
+        if (column.isRowversion()) {
+            query.whereExpression(watermarkColumn, SelectQuery.Operator.LT, "MIN_ACTIVE_ROWVERSION()");
+        }
+
+        Object[] lastMark = {null};
+        long[] handled = {0};
+        query.stream(conn, row -> {
+            // read before the handler so the columns are still consumed in order
+            Object rowMark = row.getValue(1);
+            handler.handle(row);
+            lastMark[0] = rowMark;
+            handled[0]++;
+        });
+
+        if (lastMark[0] != null) {
+            watermarks.setProperty(markKey(tableName, watermarkColumn), encode(lastMark[0]));
+            saveWatermarks();
+        }
+        System.out.println(String.format("Polled %d changed rows from %s", handled[0], tableName));
+        return handled[0];
+    }
+
+    /**
+     * Get the current mark of a table for a watermark column
+     *
+     * @param tableName
+     * @param watermarkColumn
+     * @return last handled watermark value, null if the table was never polled on that column
+     */
+    public Object getWatermark(String tableName, String watermarkColumn) {
+        String encoded = watermarks.getProperty(markKey(tableName, watermarkColumn));
+        return encoded == null ? null : decode(encoded);
+    }
+
+    /**
+     * Forget the mark of a table for a watermark column, the next poll streams the whole table
+     *
+     * @param tableName
+     * @param watermarkColumn
+     */
+    public void resetWatermark(String tableName, String watermarkColumn) {
+        if (watermarks.remove(markKey(tableName, watermarkColumn)) != null) {
+            saveWatermarks();
+        }
+    }
+
+    /**
+     * Resolve the column order and the type of the watermark column once per table.
+     * The table is resolved by OBJECT_ID, so unqualified names use the default schema
+     * of the user like the queries themselves.
+     */
+    private WatermarkColumn describe(String tableName, String watermarkColumn) throws SQLException {
+        String cacheKey = markKey(tableName, watermarkColumn);
+        WatermarkColumn cached = columnsByTable.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<String> columnOrder = new ArrayList<>();
+        String watermarkName = unquote(watermarkColumn);
+        columnOrder.add(watermarkName);
+        Boolean isRowversion = null;
+
+        try (PreparedStatement ps = conn.prepareStatement(COLUMNS_SQL)) {
+            ps.setString(1, tableName);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString(1);
+                    if (name.equalsIgnoreCase(watermarkName)) {
+                        isRowversion = ROWVERSION_TYPE.equalsIgnoreCase(rs.getString(2));
+                    } else {
+                        columnOrder.add(name);
+                    }
+                }
+            }
+        }
+        if (isRowversion == null) {
+            throw new SQLException("Column " + watermarkColumn + " not found in " + tableName);
+        }
+
+        WatermarkColumn column = new WatermarkColumn(columnOrder.toArray(new String[0]), isRowversion);
+        columnsByTable.put(cacheKey, column);
+        return column;
+    }
+
+    /**
+     * Write the marks to a temporary file and move it over the old one,
+     * so a crash never leaves a half written file
+     */
+    private void saveWatermarks() {
+        try {
+            Path directory = watermarkFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, watermarkFile.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                watermarks.store(writer, "Incremental read watermarks");
+            }
+            try {
+                Files.move(temp, watermarkFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, watermarkFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving watermarks: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marks and column lists are kept per table and watermark column, as the mark of one
+     * column means nothing for another
+     */
+    private static String markKey(String tableName, String watermarkColumn) {
+        return tableName + "|" + watermarkColumn;
+    }
+
+    private static String unquote(String name) {
+        String trimmed = name.trim();
+        if (trimmed.length() > 1 && trimmed.startsWith("[") && trimmed.endsWith("]")) {
+            return trimmed.substring(1, trimmed.length() - 1).replace("]]", "]");
+        }
+        return trimmed;
+    }
+
+    /**
+     * Encode a mark with its type so it is bound with the same type on the next poll
+     */
+    private static String encode(Object mark) {
+        return switch (mark) {
+            case byte[] bytes -> "bytes:" + HexFormat.of().formatHex(bytes);
+            case Integer i -> "long:" + i;
+            case Short s -> "long:" + s;
+            case Long l -> "long:" + l;
+            case BigDecimal d -> "decimal:" + d.toPlainString();
+            case Timestamp t -> "timestamp:" + t;
+            default -> "string:" + mark;
+        };
+    }
+
+    private static Object decode(String encoded) {
+        int separator = encoded.indexOf(':');
+        String value = encoded.substring(separator + 1);
+        return switch (encoded.substring(0, separator)) {
+            case "bytes" -> HexFormat.of().parseHex(value);
+            case "long" -> Long.parseLong(value);
+            case "decimal" -> new BigDecimal(value);
+            case "timestamp" -> Timestamp.valueOf(value);
+            default -> value;
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package com.database.utils;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -16,6 +17,7 @@ import java.util.List;
  *     <li>Show All Table Content</li>
  *     <li>Get Line Table Content</li>
  *     <li>Get All Table Content</li>
+ *     <li>Stream All Table Content</li>
  * </ul>
  *
  * <p>
@@ -46,6 +48,20 @@ public class SQLStatements {
 
     ;
 
+    /**
+     * Callback invoked once per row while streaming a table
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void handle(StreamingRow row) throws SQLException, IOException;
+
+        /**
+         * Called once before the first row, even for empty results, to read column metadata
+         */
+        default void start(StreamingRow row) throws SQLException, IOException {
+        }
+    }
+
     /**
      * Create Database
      *
@@ -282,6 +298,117 @@ public class SQLStatements {
         }
     }
 
+    /**
+     * Insert many rows into a table using batches of the default adaptive size
+     *
+     * @param conn
+     * @param tableName
+     * @param rows      ordered data for each row, every row must have the same length
+     * @return number of rows inserted
+     */
+    public static long insertRegistersToTable(Connection conn, String tableName, List<Object[]> rows) {
+        return insertRegistersToTable(conn, tableName, rows, new AdaptiveTuner());
+    }
+
+    /**
+     * Insert many rows into a table in batches sized by an {@link AdaptiveTuner}.
+     * Every executed batch is reported back to the tuner so the next one is resized
+     * toward its target latency.
+     *
+     * @param conn
+     * @param tableName
+     * @param rows      ordered data for each row, every row must have the same length
+     * @param tuner     chooses the batch size
+     * @return number of rows inserted
+     */
+    public static long insertRegistersToTable(Connection conn, String tableName, List<Object[]> rows,
+                                              AdaptiveTuner tuner) {
+        try {
+            return insertRegistersOrThrow(conn, tableName, null, rows, tuner);
+        } catch (SQLException | IllegalArgumentException e) {
+            System.err.println("SQL Exception: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Batched insert that lets errors reach the caller, so a failed batch can stop
+     * the whole load instead of silently dropping rows
+     *
+     * @param conn
+     * @param tableName
+     * @param columnNames target columns in row order, null to insert every column positionally
+     * @param rows        ordered data for each row, every row must have the same length
+     * @param tuner       chooses the batch size
+     * @return number of rows inserted
+     * @throws SQLException
+     */
+    static long insertRegistersOrThrow(Connection conn, String tableName, String[] columnNames,
+                                       List<Object[]> rows, AdaptiveTuner tuner) throws SQLException {
+        return insertRegistersOrThrow(conn, tableName, columnNames, null, rows, tuner);
+    }
+
+    /**
+     * Batched insert that lets errors reach the caller, binding NULLs with their column type
+     *
+     * @param conn
+     * @param tableName
+     * @param columnNames target columns in row order, null to insert every column positionally
+     * @param sqlTypes    java.sql.Types of the columns in row order, used for NULL values, may be null
+     * @param rows        ordered data for each row, every row must have the same length
+     * @param tuner       chooses the batch size
+     * @return number of rows inserted
+     * @throws SQLException
+     */
+    static long insertRegistersOrThrow(Connection conn, String tableName, String[] columnNames, int[] sqlTypes,
+                                       List<Object[]> rows, AdaptiveTuner tuner) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        long inserted = 0;
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(SelectQuery.quoteIdentifier(tableName));
+        if (columnNames != null) {
+            sql.append(" (");
+            for (int i = 0; i < columnNames.length; i++) {
+                sql.append(SelectQuery.quoteIdentifier(columnNames[i]));
+                if (i < columnNames.length - 1) {
+                    sql.append(", ");
+                }
+            }
+            sql.append(")");
+        }
+        sql.append(" VALUES (").append(generatePlaceholder(rows.get(0))).append(");");
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int index = 0;
+            while (index < rows.size()) {
+                int end = Math.min(rows.size(), index + tuner.getBatchSize());
+                long bytes = 0;
+                for (int r = index; r < end; r++) {
+                    Object[] data = rows.get(r);
+                    //set statements with appropriate index
+                    for (int i = 0; i < data.length; i++) {
+                        if (data[i] == null && sqlTypes != null) {
+                            // an untyped NULL is sent as text, which binary columns do not convert
+                            ps.setNull(i + 1, sqlTypes[i]);
+                        } else {
+                            setObject(ps, i + 1, data[i]);
+                        }
+                        bytes += AdaptiveTuner.estimateSize(data[i]);
+                    }
+                    ps.addBatch();
+                }
+                long start = System.nanoTime();
+                ps.executeBatch();
+                tuner.recordBatch(end - index, bytes, System.nanoTime() - start);
+                inserted += end - index;
+                index = end;
+            }
+            System.out.println(String.format("Inserted %d rows into %s, batch size: %d",
+                    inserted, tableName, tuner.getBatchSize()));
+        }
+        return inserted;
+    }
+
     /**
      * show all data from a table
      *
@@ -289,12 +416,11 @@ public class SQLStatements {
      * @param tableName
      */
     public static void showAllDataFromTable(Connection conn, String tableName) {
-        Statement st = null;
+        PreparedStatement st = null;
         try {
-            st = conn.createStatement();
-            String sql = String.format("SELECT * FROM %s", tableName);
+            st = conn.prepareStatement(SelectQuery.from(tableName).toSql());
 
-            ResultSet rs = st.executeQuery(sql);
+            ResultSet rs = st.executeQuery();
             ResultSetMetaData metaData = rs.getMetaData();
             int columnCount = metaData.getColumnCount();
 
@@ -620,43 +746,173 @@ public class SQLStatements {
     /**
      * Retrieves all data from a specified table and returns it as a list of Object arrays.
      * Each Object array represents a row in the database.
+     * Use {@link SelectQuery} to fetch only the needed columns and rows.
      *
      * @param conn Connection to the database.
      * @param tableName The name of the table to retrieve data from.
      * @return List of Object arrays, where each Object array represents a row.
      */
     public static ArrayList<Object> getAllDataFromTable(Connection conn, String tableName) {
+        try {
+            return SelectQuery.from(tableName).execute(conn);
+        } catch (IllegalArgumentException e) {
+            System.err.println("SQL Exception: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Retrieves all data from a table with the fetch size chosen by an {@link AdaptiveTuner}.
+     *
+     * @param conn Connection to the database.
+     * @param tableName The name of the table to retrieve data from.
+     * @param tuner Chooses the fetch size and is updated with the measured round trips.
+     * @return List of Object arrays, where each Object array represents a row.
+     */
+    public static ArrayList<Object> getAllDataFromTable(Connection conn, String tableName, AdaptiveTuner tuner) {
+        try {
+            return SelectQuery.from(tableName).tunedBy(tuner).execute(conn);
+        } catch (IllegalArgumentException e) {
+            System.err.println("SQL Exception: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Streams all data from a table row by row without materialising LOB columns.
+     * VARBINARY(MAX), NVARCHAR(MAX)... are exposed as InputStream / Reader handles
+     * through {@link StreamingRow}, so large values can be written straight to a sink.
+     *
+     * @param conn Connection to the database.
+     * @param tableName The name of the table to stream.
+     * @param handler Called for every row, handles are only valid during the call.
+     * @return number of rows streamed.
+     */
+    public static long streamAllDataFromTable(Connection conn, String tableName, RowHandler handler) {
+        try {
+            return SelectQuery.from(tableName).stream(conn, handler);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error streaming query: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Reads every remaining row of a ResultSet into Object arrays
+     *
+     * @param rs
+     * @param tuner chooses the fetch size, may be null
+     * @return List of Object arrays, where each Object array represents a row.
+     * @throws SQLException
+     */
+    static ArrayList<Object> readAllRows(ResultSet rs, AdaptiveTuner tuner) throws SQLException {
         ArrayList<Object> results = new ArrayList<>();
-        Statement st = null;
-        ResultSet rs = null;
+        // Get number of columns in the result set
+        int columnCount = rs.getMetaData().getColumnCount();
+        FetchMeter meter = new FetchMeter(rs, tuner);
+
+        // Iterate through the result set and build the list of Object arrays
+        while (meter.next()) {
+            Object[] row = new Object[columnCount];
+            long bytes = 0;
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = rs.getObject(i + 1);  // ResultSet is 1-indexed
+                bytes += AdaptiveTuner.estimateSize(row[i]);
+            }
+            results.add(row);
+            meter.rowRead(bytes);
+        }
+        meter.finish();
+        return results;
+    }
+
+    /**
+     * Hands every remaining row of a ResultSet to a handler through a {@link StreamingRow}
+     *
+     * @param rs
+     * @param handler
+     * @param tuner chooses the fetch size, may be null
+     * @return number of rows streamed
+     * @throws SQLException also wraps IOExceptions thrown by the handler
+     */
+    static long streamRows(ResultSet rs, RowHandler handler, AdaptiveTuner tuner) throws SQLException {
+        long rows = 0;
+        StreamingRow row = new StreamingRow(rs);
+        FetchMeter meter = new FetchMeter(rs, tuner);
+        // LOB values are never materialised here, so the width comes from the metadata
+        long rowSize = tuner == null ? 0 : AdaptiveTuner.estimateRowSize(rs.getMetaData());
         try {
-            st = conn.createStatement();
-            rs = st.executeQuery("SELECT * FROM " + tableName);
+            handler.start(row);
+            while (meter.next()) {
+                handler.handle(row);
+                rows++;
+                meter.rowRead(rowSize);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Error writing streamed row: " + e.getMessage(), e);
+        }
+        meter.finish();
+        return rows;
+    }
 
-            // Get number of columns in the result set
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
+    /**
+     * Measures the rows read per fetch and applies the fetch size chosen by the tuner.
+     * The ResultSet must come from a server cursor for the fetch size to be honoured.
+     * Only the time spent inside rs.next() is counted, which is where the driver waits
+     * for the server, so the work of the caller or handler on each row does not skew it.
+     */
+    private static final class FetchMeter {
+        private final ResultSet rs;
+        private final AdaptiveTuner tuner;
+        private int fetchSize;
+        private int rows;
+        private long bytes;
+        private long elapsed;
+
+        FetchMeter(ResultSet rs, AdaptiveTuner tuner) throws SQLException {
+            this.rs = rs;
+            this.tuner = tuner;
+            if (tuner != null) {
+                fetchSize = tuner.getFetchSize();
+                rs.setFetchSize(fetchSize);
+            }
+        }
 
-            // Iterate through the result set and build the list of Object arrays
-            while (rs.next()) {
-                Object[] row = new Object[columnCount];
-                for (int i = 0; i < columnCount; i++) {
-                    row[i] = rs.getObject(i + 1);  // ResultSet is 1-indexed
-                }
-                results.add(row);
+        boolean next() throws SQLException {
+            if (tuner == null) {
+                return rs.next();
             }
-        } catch (SQLException e) {
-            System.err.println("SQL Exception: " + e.getMessage());
-        } finally {
-            // Always close the ResultSet and Statement when done
-            try {
-                if (rs != null) rs.close();
-                if (st != null) st.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing resources: " + e.getMessage());
+            long start = System.nanoTime();
+            boolean hasRow = rs.next();
+            elapsed += System.nanoTime() - start;
+            return hasRow;
+        }
+
+        void rowRead(long rowBytes) throws SQLException {
+            if (tuner == null) {
+                return;
+            }
+            rows++;
+            bytes += rowBytes;
+            if (rows >= fetchSize) {
+                record();
+                fetchSize = tuner.getFetchSize();
+                rs.setFetchSize(fetchSize);
             }
         }
-        return results;
+
+        void finish() {
+            if (tuner != null && rows > 0) {
+                record();
+            }
+        }
+
+        private void record() {
+            tuner.recordFetch(rows, bytes, elapsed);
+            rows = 0;
+            bytes = 0;
+            elapsed = 0;
+        }
     }
 
     /**
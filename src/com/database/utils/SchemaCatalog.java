@@ -0,0 +1,370 @@
+package com.database.utils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * In-memory catalog of tables, columns, indexes and foreign keys.
+ *
+ * <p>
+ *     A database is loaded with four set-based queries over its sys.* views,
+ *     whatever the number of tables, instead of one DatabaseMetaData call per table.
+ *     Several databases can be loaded in parallel, one connection each.
+ *     <br>
+ *     Lookups by name are O(1) and case insensitive, like the default SQL Server collation.
+ * </p>
+ */
+public class SchemaCatalog {
+
+    /**
+     * Column of a table
+     *
+     * @param name
+     * @param ordinal    1-indexed position in the table
+     * @param typeName   like int, nvarchar, decimal
+     * @param maxLength  length in bytes, -1 for MAX columns
+     * @param precision
+     * @param scale
+     * @param isNullable
+     * @param isIdentity
+     */
+    public record ColumnInfo(String name, int ordinal, String typeName, int maxLength, int precision, int scale,
+                             boolean isNullable, boolean isIdentity) {
+    }
+
+    /**
+     * Index of a table, the primary key is an index too
+     *
+     * @param name
+     * @param isUnique
+     * @param isPrimaryKey
+     * @param columns      key columns in key order, included columns are left out
+     */
+    public record IndexInfo(String name, boolean isUnique, boolean isPrimaryKey, List<String> columns) {
+    }
+
+    /**
+     * Foreign key of a table
+     *
+     * @param name
+     * @param columns           referencing columns
+     * @param referencedTable   schema qualified name of the referenced table
+     * @param referencedColumns referenced columns, in the same order
+     */
+    public record ForeignKeyInfo(String name, List<String> columns, String referencedTable,
+                                 List<String> referencedColumns) {
+    }
+
+    /**
+     * Table with its columns, indexes and foreign keys
+     */
+    public static class TableInfo {
+        private final String schema;
+        private final String name;
+        private final List<ColumnInfo> columns;
+        private final Map<String, ColumnInfo> columnsByName = new HashMap<>();
+        private final List<IndexInfo> indexes;
+        private final List<ForeignKeyInfo> foreignKeys;
+
+        TableInfo(String schema, String name, List<ColumnInfo> columns,
+                  List<IndexInfo> indexes, List<ForeignKeyInfo> foreignKeys) {
+            this.schema = schema;
+            this.name = name;
+            this.columns = Collections.unmodifiableList(columns);
+            this.indexes = Collections.unmodifiableList(indexes);
+            this.foreignKeys = Collections.unmodifiableList(foreignKeys);
+            for (ColumnInfo column : columns) {
+                columnsByName.put(key(column.name()), column);
+            }
+        }
+
+        public String getSchema() {
+            return schema;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getQualifiedName() {
+            return schema + "." + name;
+        }
+
+        public List<ColumnInfo> getColumns() {
+            return columns;
+        }
+
+        public ColumnInfo getColumn(String columnName) {
+            return columnsByName.get(key(columnName));
+        }
+
+        public List<IndexInfo> getIndexes() {
+            return indexes;
+        }
+
+        public List<ForeignKeyInfo> getForeignKeys() {
+            return foreignKeys;
+        }
+
+        /**
+         * Get the primary key of the table
+         *
+         * @return primary key index, null for tables without one
+         */
+        public IndexInfo getPrimaryKey() {
+            for (IndexInfo index : indexes) {
+                if (index.isPrimaryKey()) {
+                    return index;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Tables of one database
+     */
+    public static class DatabaseInfo {
+        private static final String DEFAULT_SCHEMA = "dbo";
+
+        private final String name;
+        private final Map<String, TableInfo> tablesByQualifiedName = new LinkedHashMap<>();
+        private final Map<String, TableInfo> tablesByName = new HashMap<>();
+
+        DatabaseInfo(String name, Collection<TableInfo> tables) {
+            this.name = name;
+            for (TableInfo table : tables) {
+                tablesByQualifiedName.put(key(table.getQualifiedName()), table);
+                // unqualified names resolve to dbo first, like SQL Server does for most users
+                TableInfo existing = tablesByName.get(key(table.getName()));
+                if (existing == null || DEFAULT_SCHEMA.equalsIgnoreCase(table.getSchema())) {
+                    tablesByName.put(key(table.getName()), table);
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Collection<TableInfo> getTables() {
+            return Collections.unmodifiableCollection(tablesByQualifiedName.values());
+        }
+
+        /**
+         * Find a table
+         *
+         * @param tableName like users or dbo.users
+         * @return table, null if it does not exist
+         */
+        public TableInfo getTable(String tableName) {
+            String unquoted = tableName.replace("[", "").replace("]", "");
+            TableInfo table = tablesByQualifiedName.get(key(unquoted));
+            return table != null ? table : tablesByName.get(key(unquoted));
+        }
+    }
+
+    private final Map<String, DatabaseInfo> databases = new LinkedHashMap<>();
+
+    private SchemaCatalog(Collection<DatabaseInfo> databases) {
+        for (DatabaseInfo database : databases) {
+            this.databases.put(key(database.getName()), database);
+        }
+    }
+
+    public Collection<DatabaseInfo> getDatabases() {
+        return Collections.unmodifiableCollection(databases.values());
+    }
+
+    public DatabaseInfo getDatabase(String databaseName) {
+        return databases.get(key(databaseName));
+    }
+
+    /**
+     * Find a table in a database of the catalog
+     *
+     * @param databaseName
+     * @param tableName    like users or dbo.users
+     * @return table, null if the database or table is not in the catalog
+     */
+    public TableInfo getTable(String databaseName, String tableName) {
+        DatabaseInfo database = getDatabase(databaseName);
+        return database == null ? null : database.getTable(tableName);
+    }
+
+    /**
+     * Load several databases over one connection, one after the other
+     *
+     * @param conn
+     * @param databaseNames
+     * @return catalog, databases that fail to load are logged and left out
+     */
+    public static SchemaCatalog load(Connection conn, String... databaseNames) {
+        List<DatabaseInfo> loaded = new ArrayList<>();
+        for (String databaseName : databaseNames) {
+            try {
+                loaded.add(loadDatabase(conn, databaseName));
+            } catch (SQLException e) {
+                System.err.println("Error loading catalog of " + databaseName + ": " + e.getMessage());
+            }
+        }
+        return new SchemaCatalog(loaded);
+    }
+
+    /**
+     * Load several databases in parallel, each over its own connection
+     *
+     * @param connectionsByDatabase connection to use for each database
+     * @param parallelism           number of databases loaded at the same time
+     * @return catalog, databases that fail to load are logged and left out
+     */
+    public static SchemaCatalog loadAll(Map<String, Connection> connectionsByDatabase, int parallelism) {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(parallelism, connectionsByDatabase.size())));
+        try {
+            Map<String, Future<DatabaseInfo>> futures = new LinkedHashMap<>();
+            connectionsByDatabase.forEach((databaseName, conn) ->
+                    futures.put(databaseName, executor.submit(() -> loadDatabase(conn, databaseName))));
+
+            List<DatabaseInfo> loaded = new ArrayList<>();
+            for (Map.Entry<String, Future<DatabaseInfo>> entry : futures.entrySet()) {
+                try {
+                    loaded.add(entry.getValue().get());
+                } catch (ExecutionException e) {
+                    System.err.println("Error loading catalog of " + entry.getKey() + ": "
+                            + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    System.err.println("Interrupted loading catalog of " + entry.getKey());
+                }
+            }
+            return new SchemaCatalog(loaded);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Load one database with set-based queries over its sys.* views
+     *
+     * @param conn
+     * @param databaseName
+     * @return database with all its user tables
+     * @throws SQLException
+     */
+    public static DatabaseInfo loadDatabase(Connection conn, String databaseName) throws SQLException {
+        // three-part names so any connection on the server can read the catalog without USE
+        String db = SelectQuery.quoteIdentifier(databaseName);
+        Map<Integer, String[]> tableNames = new LinkedHashMap<>();
+        Map<Integer, List<ColumnInfo>> columns = new HashMap<>();
+        Map<Integer, Map<String, IndexInfo>> indexes = new HashMap<>();
+        Map<Integer, Map<String, ForeignKeyInfo>> foreignKeys = new HashMap<>();
+
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery(String.format(
+                    "SELECT t.object_id, s.name, t.name FROM %1$s.sys.tables t " +
+                            "JOIN %1$s.sys.schemas s ON s.schema_id = t.schema_id " +
+                            "WHERE t.is_ms_shipped = 0 ORDER BY s.name, t.name", db))) {
+                while (rs.next()) {
+                    tableNames.put(rs.getInt(1), new String[]{rs.getString(2), rs.getString(3)});
+                }
+            }
+
+            try (ResultSet rs = st.executeQuery(String.format(
+                    "SELECT c.object_id, c.column_id, c.name, ty.name, c.max_length, c.precision, c.scale, " +
+                            "c.is_nullable, c.is_identity FROM %1$s.sys.columns c " +
+                            "JOIN %1$s.sys.tables t ON t.object_id = c.object_id " +
+                            "JOIN %1$s.sys.types ty ON ty.user_type_id = c.user_type_id " +
+                            "WHERE t.is_ms_shipped = 0 ORDER BY c.object_id, c.column_id", db))) {
+                while (rs.next()) {
+                    columns.computeIfAbsent(rs.getInt(1), id -> new ArrayList<>())
+                            .add(new ColumnInfo(rs.getString(3), rs.getInt(2), rs.getString(4), rs.getInt(5),
+                                    rs.getInt(6), rs.getInt(7), rs.getBoolean(8), rs.getBoolean(9)));
+                }
+            }
+
+            try (ResultSet rs = st.executeQuery(String.format(
+                    "SELECT i.object_id, i.name, i.is_unique, i.is_primary_key, c.name FROM %1$s.sys.indexes i " +
+                            "JOIN %1$s.sys.tables t ON t.object_id = i.object_id " +
+                            "JOIN %1$s.sys.index_columns ic ON ic.object_id = i.object_id AND ic.index_id = i.index_id " +
+                            "JOIN %1$s.sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id " +
+                            "WHERE t.is_ms_shipped = 0 AND ic.is_included_column = 0 " +
+                            "ORDER BY i.object_id, i.index_id, ic.key_ordinal", db))) {
+                while (rs.next()) {
+                    String indexName = rs.getString(2);
+                    boolean isUnique = rs.getBoolean(3);
+                    boolean isPrimaryKey = rs.getBoolean(4);
+                    indexes.computeIfAbsent(rs.getInt(1), id -> new LinkedHashMap<>())
+                            .computeIfAbsent(indexName, name ->
+                                    new IndexInfo(name, isUnique, isPrimaryKey, new ArrayList<>()))
+                            .columns().add(rs.getString(5));
+                }
+            }
+
+            try (ResultSet rs = st.executeQuery(String.format(
+                    "SELECT fk.parent_object_id, fk.name, pc.name, rs.name, rt.name, rc.name " +
+                            "FROM %1$s.sys.foreign_keys fk " +
+                            "JOIN %1$s.sys.foreign_key_columns fkc ON fkc.constraint_object_id = fk.object_id " +
+                            "JOIN %1$s.sys.columns pc ON pc.object_id = fkc.parent_object_id " +
+                            "AND pc.column_id = fkc.parent_column_id " +
+                            "JOIN %1$s.sys.tables rt ON rt.object_id = fkc.referenced_object_id " +
+                            "JOIN %1$s.sys.schemas rs ON rs.schema_id = rt.schema_id " +
+                            "JOIN %1$s.sys.columns rc ON rc.object_id = fkc.referenced_object_id " +
+                            "AND rc.column_id = fkc.referenced_column_id " +
+                            "ORDER BY fk.parent_object_id, fk.object_id, fkc.constraint_column_id", db))) {
+                while (rs.next()) {
+                    String referencedTable = rs.getString(4) + "." + rs.getString(5);
+                    ForeignKeyInfo foreignKey = foreignKeys.computeIfAbsent(rs.getInt(1), id -> new LinkedHashMap<>())
+                            .computeIfAbsent(rs.getString(2), name ->
+                                    new ForeignKeyInfo(name, new ArrayList<>(), referencedTable, new ArrayList<>()));
+                    foreignKey.columns().add(rs.getString(3));
+                    foreignKey.referencedColumns().add(rs.getString(6));
+                }
+            }
+        }
+
+        List<TableInfo> tables = new ArrayList<>();
+        tableNames.forEach((objectId, names) -> tables.add(new TableInfo(names[0], names[1],
+                columns.getOrDefault(objectId, new ArrayList<>()),
+                freezeIndexes(indexes.getOrDefault(objectId, Map.of()).values()),
+                freezeForeignKeys(foreignKeys.getOrDefault(objectId, Map.of()).values()))));
+        System.out.println(String.format("Loaded catalog of %s: %d tables", databaseName, tables.size()));
+        return new DatabaseInfo(databaseName, tables);
+    }
+
+    private static List<IndexInfo> freezeIndexes(Collection<IndexInfo> indexes) {
+        List<IndexInfo> frozen = new ArrayList<>();
+        for (IndexInfo index : indexes) {
+            frozen.add(new IndexInfo(index.name(), index.isUnique(), index.isPrimaryKey(),
+                    List.copyOf(index.columns())));
+        }
+        return frozen;
+    }
+
+    private static List<ForeignKeyInfo> freezeForeignKeys(Collection<ForeignKeyInfo> foreignKeys) {
+        List<ForeignKeyInfo> frozen = new ArrayList<>();
+        for (ForeignKeyInfo foreignKey : foreignKeys) {
+            frozen.add(new ForeignKeyInfo(foreignKey.name(), List.copyOf(foreignKey.columns()),
+                    foreignKey.referencedTable(), List.copyOf(foreignKey.referencedColumns())));
+        }
+        return frozen;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
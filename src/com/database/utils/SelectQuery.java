@@ -0,0 +1,532 @@
+package com.database.utils;
+
+import com.microsoft.sqlserver.jdbc.SQLServerResultSet;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Typed SELECT builder that pushes projection, filtering, ordering and TOP down to the server.
+ *
+ * <p>
+ *     Generates parameterised SQL, identifiers are bracket quoted and values are always bound,
+ *     so the same query shape reuses one prepared statement through {@link StatementCache}.
+ *     <br>
+ *     Example:
+ *     <pre>
+ *     SelectQuery.from("dbo.users")
+ *             .columns("id", "name")
+ *             .where("age", SelectQuery.Operator.GE, 18)
+ *             .orderBy("name", true)
+ *             .top(100)
+ *             .execute(conn);
+ *     </pre>
+ * </p>
+ */
+public class SelectQuery {
+
+    /**
+     * Comparison operators for WHERE predicates
+     */
+    public enum Operator {
+        EQ("="),
+        NE("<>"),
+        LT("<"),
+        LE("<="),
+        GT(">"),
+        GE(">="),
+        LIKE("LIKE"),
+        IS_NULL("IS NULL"),
+        IS_NOT_NULL("IS NOT NULL");
+
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+        boolean takesValue() {
+            return this != IS_NULL && this != IS_NOT_NULL;
+        }
+    }
+
+    private record Predicate(String column, Operator operator, Object value, String expression) {
+    }
+
+    record Order(String column, boolean ascending) {
+    }
+
+    /**
+     * Rows of a query with the names of the selected columns
+     *
+     * @param columnNames names in result order
+     * @param rows        Object arrays, one per row
+     */
+    record Result(List<String> columnNames, ArrayList<Object> rows) {
+    }
+
+    private final String tableName;
+    private final List<String> columns = new ArrayList<>();
+    private final List<Predicate> predicates = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private int top = -1;
+    private AdaptiveTuner tuner;
+
+    private SelectQuery(String tableName) {
+        this.tableName = requireName(tableName, "tableName");
+    }
+
+    /**
+     * Start a query over a table, optionally schema qualified (dbo.users)
+     *
+     * @param tableName
+     * @return query selecting every column
+     */
+    public static SelectQuery from(String tableName) {
+        return new SelectQuery(tableName);
+    }
+
+    /**
+     * Choose the columns to select, by default every column is selected
+     *
+     * @param columnNames
+     * @return this query
+     */
+    public SelectQuery columns(String... columnNames) {
+        for (String name : columnNames) {
+            columns.add(requireName(name, "column"));
+        }
+        return this;
+    }
+
+    /**
+     * Add a predicate, predicates are combined with AND
+     *
+     * @param column
+     * @param operator
+     * @param value    bound as a parameter, ignored for IS_NULL / IS_NOT_NULL
+     * @return this query
+     */
+    public SelectQuery where(String column, Operator operator, Object value) {
+        if (operator.takesValue() && value == null) {
+            throw new IllegalArgumentException("Use IS_NULL to compare " + column + " with NULL");
+        }
+        predicates.add(new Predicate(requireName(column, "column"), operator, value, null));
+        return this;
+    }
+
+    public SelectQuery where(String column, Operator operator) {
+        return where(column, operator, null);
+    }
+
+    /**
+     * Compare a column with a server side expression instead of a bound value.
+     * Package private as the expression is copied into the SQL as is.
+     *
+     * @param column
+     * @param operator
+     * @param expression like MIN_ACTIVE_ROWVERSION()
+     * @return this query
+     */
+    SelectQuery whereExpression(String column, Operator operator, String expression) {
+        if (!operator.takesValue()) {
+            throw new IllegalArgumentException(operator + " does not take an expression");
+        }
+        predicates.add(new Predicate(requireName(column, "column"), operator, null,
+                requireName(expression, "expression")));
+        return this;
+    }
+
+    /**
+     * Add an ORDER BY column, applied in the order they are added
+     *
+     * @param column
+     * @param ascending
+     * @return this query
+     */
+    public SelectQuery orderBy(String column, boolean ascending) {
+        orders.add(new Order(requireName(column, "column"), ascending));
+        return this;
+    }
+
+    /**
+     * Limit the number of rows returned
+     *
+     * @param rows
+     * @return this query
+     */
+    public SelectQuery top(int rows) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("top must not be negative");
+        }
+        this.top = rows;
+        return this;
+    }
+
+    /**
+     * Let an {@link AdaptiveTuner} choose the fetch size while reading the results.
+     * The query then reads through a forward only server cursor, which returns fetch size
+     * rows per round trip, instead of the default result streamed in one go.
+     *
+     * @param tuner
+     * @return this query
+     */
+    public SelectQuery tunedBy(AdaptiveTuner tuner) {
+        this.tuner = tuner;
+        return this;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    List<Order> getOrders() {
+        return Collections.unmodifiableList(orders);
+    }
+
+    /**
+     * @return row limit, -1 when there is no TOP
+     */
+    int getTop() {
+        return top;
+    }
+
+    /**
+     * Build the parameterised SQL for this query
+     *
+     * @return sql with ? placeholders, see {@link #getParameters()}
+     */
+    public String toSql() {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (top >= 0) {
+            // TOP is bound too so every limit shares one plan
+            sql.append("TOP (?) ");
+        }
+        if (columns.isEmpty()) {
+            sql.append("*");
+        } else {
+            for (int i = 0; i < columns.size(); i++) {
+                sql.append(quoteIdentifier(columns.get(i)));
+                if (i < columns.size() - 1) {
+                    sql.append(", ");
+                }
+            }
+        }
+        sql.append(" FROM ").append(quoteIdentifier(tableName));
+
+        for (int i = 0; i < predicates.size(); i++) {
+            Predicate predicate = predicates.get(i);
+            sql.append(i == 0 ? " WHERE " : " AND ")
+                    .append(quoteIdentifier(predicate.column()))
+                    .append(" ")
+                    .append(predicate.operator().sql);
+            if (predicate.expression() != null) {
+                sql.append(" ").append(predicate.expression());
+            } else if (predicate.operator().takesValue()) {
+                sql.append(" ?");
+            }
+        }
+
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            sql.append(i == 0 ? " ORDER BY " : ", ")
+                    .append(quoteIdentifier(order.column()))
+                    .append(order.ascending() ? " ASC" : " DESC");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Values bound to the placeholders of {@link #toSql()}, in order
+     *
+     * @return parameters
+     */
+    public List<Object> getParameters() {
+        List<Object> parameters = new ArrayList<>();
+        if (top >= 0) {
+            parameters.add(top);
+        }
+        for (Predicate predicate : predicates) {
+            if (predicate.expression() == null && predicate.operator().takesValue()) {
+                parameters.add(predicate.value());
+            }
+        }
+        return Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * Bind the parameters of this query into a statement prepared from {@link #toSql()}
+     *
+     * @param ps
+     * @throws SQLException
+     */
+    public void bind(PreparedStatement ps) throws SQLException {
+        List<Object> parameters = getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            ps.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    /**
+     * Run the query and return every row as an Object array
+     *
+     * @param conn
+     * @return List of Object arrays, where each Object array represents a row.
+     */
+    public ArrayList<Object> execute(Connection conn) {
+        ArrayList<Object> results = new ArrayList<>();
+        try (PreparedStatement ps = prepare(conn)) {
+            results = executeStatement(ps);
+        } catch (SQLException e) {
+            System.err.println("SQL Exception: " + e.getMessage());
+        }
+        return results;
+    }
+
+    /**
+     * Run the query reusing a cached prepared statement
+     *
+     * @param cache
+     * @return List of Object arrays, where each Object array represents a row.
+     */
+    public ArrayList<Object> execute(StatementCache cache) {
+        ArrayList<Object> results = new ArrayList<>();
+        try {
+            results = executeStatement(prepare(cache));
+        } catch (SQLException e) {
+            System.err.println("SQL Exception: " + e.getMessage());
+        }
+        return results;
+    }
+
+    /**
+     * Run the query and stream the rows, LOB columns are not materialised
+     *
+     * @param conn
+     * @param handler called for every row
+     * @return number of rows handled, on error the rows handled before it
+     */
+    public long stream(Connection conn, SQLStatements.RowHandler handler) {
+        CountingHandler counting = new CountingHandler(handler);
+        try {
+            streamOrThrow(conn, counting);
+        } catch (SQLException e) {
+            System.err.println("Error streaming query: " + e.getMessage());
+        }
+        return counting.rows;
+    }
+
+    /**
+     * Stream the query reusing a cached prepared statement
+     *
+     * @param cache
+     * @param handler called for every row
+     * @return number of rows handled, on error the rows handled before it
+     */
+    public long stream(StatementCache cache, SQLStatements.RowHandler handler) {
+        CountingHandler counting = new CountingHandler(handler);
+        try {
+            streamStatement(prepare(cache), counting);
+        } catch (SQLException e) {
+            System.err.println("Error streaming query: " + e.getMessage());
+        }
+        return counting.rows;
+    }
+
+    /**
+     * Stream the query and let errors reach the caller, for callers that must not
+     * treat a partial result as complete
+     *
+     * @param conn
+     * @param handler called for every row
+     * @return number of rows streamed
+     * @throws SQLException also wraps IOExceptions thrown by the handler
+     */
+    long streamOrThrow(Connection conn, SQLStatements.RowHandler handler) throws SQLException {
+        try (PreparedStatement ps = prepare(conn)) {
+            return streamStatement(ps, handler);
+        }
+    }
+
+    /**
+     * Run the query and let errors reach the caller
+     *
+     * @param conn
+     * @return rows and column names
+     * @throws SQLException
+     */
+    Result executeOrThrow(Connection conn) throws SQLException {
+        try (PreparedStatement ps = prepare(conn)) {
+            return executeWithColumns(ps);
+        }
+    }
+
+    /**
+     * Run the query on a cached statement and let errors reach the caller
+     *
+     * @param cache
+     * @return rows and column names
+     * @throws SQLException
+     */
+    Result executeOrThrow(StatementCache cache) throws SQLException {
+        return executeWithColumns(prepare(cache));
+    }
+
+    private Result executeWithColumns(PreparedStatement ps) throws SQLException {
+        prepareExecution(ps);
+        try (ResultSet rs = ps.executeQuery()) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            List<String> columnNames = new ArrayList<>();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columnNames.add(metaData.getColumnLabel(i));
+            }
+            return new Result(columnNames, SQLStatements.readAllRows(rs, tuner));
+        }
+    }
+
+    private ArrayList<Object> executeStatement(PreparedStatement ps) throws SQLException {
+        prepareExecution(ps);
+        try (ResultSet rs = ps.executeQuery()) {
+            return SQLStatements.readAllRows(rs, tuner);
+        }
+    }
+
+    private long streamStatement(PreparedStatement ps, SQLStatements.RowHandler handler) throws SQLException {
+        prepareExecution(ps);
+        try (ResultSet rs = ps.executeQuery()) {
+            return SQLStatements.streamRows(rs, handler, tuner);
+        }
+    }
+
+    private PreparedStatement prepare(Connection conn) throws SQLException {
+        return conn.prepareStatement(toSql(), resultSetType(), ResultSet.CONCUR_READ_ONLY);
+    }
+
+    private PreparedStatement prepare(StatementCache cache) throws SQLException {
+        return cache.prepare(toSql(), resultSetType(), ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * The default forward only result is sent whole and ignores the fetch size,
+     * so tuned queries use a server cursor where each fetch is one round trip
+     */
+    private int resultSetType() {
+        return tuner != null ? SQLServerResultSet.TYPE_SS_SERVER_CURSOR_FORWARD_ONLY : ResultSet.TYPE_FORWARD_ONLY;
+    }
+
+    private void prepareExecution(PreparedStatement ps) throws SQLException {
+        bind(ps);
+        if (tuner != null) {
+            // first fetch already uses the tuned size
+            ps.setFetchSize(tuner.getFetchSize());
+        }
+    }
+
+    /**
+     * Counts the rows a handler finished, so a failed stream still reports its progress
+     */
+    private static final class CountingHandler implements SQLStatements.RowHandler {
+        private final SQLStatements.RowHandler handler;
+        private long rows;
+
+        CountingHandler(SQLStatements.RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void start(StreamingRow row) throws SQLException, IOException {
+            handler.start(row);
+        }
+
+        @Override
+        public void handle(StreamingRow row) throws SQLException, IOException {
+            handler.handle(row);
+            rows++;
+        }
+    }
+
+    /**
+     * Bracket quote a possibly qualified identifier, closing brackets are escaped
+     *
+     * @param name like users, dbo.users, [dbo].[users], [my.table] or db..users
+     * @return quoted identifier like [dbo].[users]
+     */
+    public static String quoteIdentifier(String name) {
+        List<String> parts = splitIdentifier(name);
+        StringBuilder quoted = new StringBuilder();
+        for (int i = 0; i < parts.size(); i++) {
+            String part = parts.get(i);
+            // an empty middle part keeps the default schema, like db..users
+            if (!part.isEmpty()) {
+                quoted.append('[').append(part.replace("]", "]]")).append(']');
+            }
+            if (i < parts.size() - 1) {
+                quoted.append('.');
+            }
+        }
+        return quoted.toString();
+    }
+
+    /**
+     * Split a possibly qualified identifier on the dots outside brackets
+     *
+     * @param name
+     * @return unquoted parts, middle parts may be empty
+     */
+    static List<String> splitIdentifier(String name) {
+        requireName(name, "identifier");
+        List<String> parts = new ArrayList<>();
+        StringBuilder part = new StringBuilder();
+        boolean bracketed = false;
+        boolean closed = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (bracketed && !closed) {
+                if (c != ']') {
+                    part.append(c);
+                } else if (i + 1 < name.length() && name.charAt(i + 1) == ']') {
+                    part.append(']');
+                    i++;
+                } else {
+                    closed = true;
+                }
+            } else if (c == '.') {
+                parts.add(bracketed ? part.toString() : part.toString().trim());
+                part.setLength(0);
+                bracketed = false;
+                closed = false;
+            } else if (closed) {
+                if (!Character.isWhitespace(c)) {
+                    throw new IllegalArgumentException("Invalid identifier: " + name);
+                }
+            } else if (c == '[' && part.toString().isBlank()) {
+                part.setLength(0);
+                bracketed = true;
+            } else {
+                part.append(c);
+            }
+        }
+        if (bracketed && !closed) {
+            throw new IllegalArgumentException("Unclosed bracket in identifier: " + name);
+        }
+        parts.add(bracketed ? part.toString() : part.toString().trim());
+        if (parts.size() > 4 || parts.get(0).isEmpty() || parts.get(parts.size() - 1).isEmpty()) {
+            throw new IllegalArgumentException("Invalid identifier: " + name);
+        }
+        return parts;
+    }
+
+    private static String requireName(String name, String what) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException(what + " must not be empty");
+        }
+        return name;
+    }
+}
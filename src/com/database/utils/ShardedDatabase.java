@@ -0,0 +1,415 @@
+package com.database.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Spreads tables across several databases, one {@link DatabaseConnector} per shard.
+ *
+ * <p>
+ *     Rows are routed by consistent hashing of a key column, so adding a shard only
+ *     moves the keys that land on it. Keys are hashed in a canonical form, so the same
+ *     value always reaches the same shard whatever its Java type or the JVM time zone.
+ *     String keys are compared like the default case insensitive collation: case and
+ *     trailing spaces do not change the shard.
+ *     <br>
+ *     Scans run on every shard in parallel. Rows are merged on the ORDER BY columns of a
+ *     {@link SelectQuery} and TOP is applied again after the merge, strings compare with
+ *     the same folding as string keys. Point lookups only hit the shards owning the keys.
+ *     <br>
+ *     A failure on any shard fails the whole call. Writes are not transactional across
+ *     shards, rows already written to other shards stay there.
+ *     <br>
+ *     Each call uses every shard connection from one thread at most, so the instance
+ *     itself must not be shared between threads.
+ * </p>
+ */
+public class ShardedDatabase implements AutoCloseable {
+    // Points per shard on the ring, more points spread the keys more evenly
+    private static final int VIRTUAL_NODES = 128;
+
+    private final Map<String, DatabaseConnector> shards;
+    private final Map<String, AdaptiveTuner> tuners = new LinkedHashMap<>();
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final ExecutorService executor;
+
+    /**
+     * Create a sharded database over connected shards
+     *
+     * @param shards connectors by shard name, names must stay stable to keep the routing
+     */
+    public ShardedDatabase(Map<String, DatabaseConnector> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        for (String name : this.shards.keySet()) {
+            tuners.put(name, new AdaptiveTuner());
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash((name + "#" + i).getBytes(StandardCharsets.UTF_8)), name);
+            }
+        }
+        this.executor = Executors.newFixedThreadPool(this.shards.size());
+    }
+
+    public Map<String, DatabaseConnector> getShards() {
+        return shards;
+    }
+
+    /**
+     * Get the shard owning a key
+     *
+     * @param key value of the key column: integer types, BigDecimal, String, UUID,
+     *            byte[], Timestamp, Date or Boolean
+     * @return shard name
+     */
+    public String shardFor(Object key) {
+        SortedMap<Long, String> tail = ring.tailMap(hash(canonicalKey(key)));
+        return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+    }
+
+    /**
+     * Get the connection of the shard owning a key
+     *
+     * @param key
+     * @return connection
+     */
+    public Connection connectionFor(Object key) {
+        return connection(shardFor(key));
+    }
+
+    /**
+     * Insert a row into the shard owning its key
+     *
+     * @param tableName
+     * @param keyColumn 0-indexed position of the key in the data
+     * @param data      ordered data for the insert statement
+     * @throws SQLException if the insert fails
+     */
+    public void insertRegisterToTable(String tableName, int keyColumn, Object[] data) throws SQLException {
+        String name = shardFor(data[keyColumn]);
+        SQLStatements.insertRegistersOrThrow(connection(name), tableName, null, List.<Object[]>of(data),
+                tuners.get(name));
+    }
+
+    /**
+     * Bulk insert rows, grouped by shard and written to every shard in parallel.
+     * Each shard keeps its own {@link AdaptiveTuner} for the batch size.
+     *
+     * @param tableName
+     * @param keyColumn 0-indexed position of the key in every row
+     * @param rows
+     * @return number of rows inserted over all shards
+     * @throws SQLException if any shard fails
+     */
+    public long insertRegistersToTable(String tableName, int keyColumn, List<Object[]> rows) throws SQLException {
+        Map<String, List<Object[]>> rowsByShard = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            rowsByShard.computeIfAbsent(shardFor(row[keyColumn]), name -> new ArrayList<>()).add(row);
+        }
+
+        Map<String, Callable<Long>> tasks = new LinkedHashMap<>();
+        rowsByShard.forEach((name, shardRows) -> tasks.put(name, () ->
+                SQLStatements.insertRegistersOrThrow(connection(name), tableName, null, shardRows, tuners.get(name))));
+
+        long inserted = 0;
+        for (Long count : runAll(tasks)) {
+            inserted += count;
+        }
+        return inserted;
+    }
+
+    /**
+     * Retrieves all data from a table on every shard
+     *
+     * @param tableName
+     * @return List of Object arrays, where each Object array represents a row.
+     * @throws SQLException if any shard fails
+     */
+    public ArrayList<Object> getAllDataFromTable(String tableName) throws SQLException {
+        return execute(SelectQuery.from(tableName));
+    }
+
+    /**
+     * Run a query on every shard in parallel and merge the rows, ORDER BY columns must be selected
+     *
+     * @param query
+     * @return List of Object arrays, where each Object array represents a row.
+     * @throws SQLException if any shard fails
+     */
+    public ArrayList<Object> execute(SelectQuery query) throws SQLException {
+        Map<String, Callable<SelectQuery.Result>> tasks = new LinkedHashMap<>();
+        for (String name : shards.keySet()) {
+            tasks.put(name, () -> query.executeOrThrow(connection(name)));
+        }
+        return merge(query, runAll(tasks));
+    }
+
+    /**
+     * Run a query only on the shard owning a key, the query should filter on that key
+     *
+     * @param query
+     * @param key
+     * @return List of Object arrays, where each Object array represents a row.
+     * @throws SQLException if the query fails
+     */
+    public ArrayList<Object> lookup(SelectQuery query, Object key) throws SQLException {
+        return query.executeOrThrow(connectionFor(key)).rows();
+    }
+
+    /**
+     * Run a point lookup for several keys, only the owning shards are queried, in parallel
+     *
+     * @param tableName
+     * @param keyColumnName
+     * @param keys
+     * @return List of Object arrays, where each Object array represents a row.
+     * @throws SQLException if any shard fails
+     */
+    public ArrayList<Object> lookup(String tableName, String keyColumnName, List<?> keys) throws SQLException {
+        Map<String, List<Object>> keysByShard = new LinkedHashMap<>();
+        for (Object key : keys) {
+            keysByShard.computeIfAbsent(shardFor(key), name -> new ArrayList<>()).add(key);
+        }
+
+        Map<String, Callable<ArrayList<Object>>> tasks = new LinkedHashMap<>();
+        keysByShard.forEach((name, shardKeys) -> tasks.put(name, () -> {
+            // one cached statement per shard for every key
+            try (StatementCache cache = new StatementCache(connection(name), 1)) {
+                ArrayList<Object> rows = new ArrayList<>();
+                for (Object key : shardKeys) {
+                    rows.addAll(SelectQuery.from(tableName)
+                            .where(keyColumnName, SelectQuery.Operator.EQ, key)
+                            .executeOrThrow(cache)
+                            .rows());
+                }
+                return rows;
+            }
+        }));
+
+        ArrayList<Object> results = new ArrayList<>();
+        for (ArrayList<Object> shardRows : runAll(tasks)) {
+            results.addAll(shardRows);
+        }
+        return results;
+    }
+
+    /**
+     * Stop the worker threads and disconnect every shard
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        for (DatabaseConnector connector : shards.values()) {
+            connector.disconnect();
+        }
+    }
+
+    private Connection connection(String shardName) {
+        Connection conn = shards.get(shardName).getConnection();
+        if (conn == null) {
+            throw new IllegalStateException("Shard " + shardName + " is not connected");
+        }
+        return conn;
+    }
+
+    /**
+     * Run one task per shard and wait for all of them, the first failure fails the call
+     */
+    private <T> List<T> runAll(Map<String, Callable<T>> tasks) throws SQLException {
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        tasks.forEach((name, task) -> futures.put(name, executor.submit(task)));
+
+        List<T> results = new ArrayList<>();
+        SQLException failure = null;
+        for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+            try {
+                results.add(entry.getValue().get());
+            } catch (ExecutionException e) {
+                SQLException shardFailure = new SQLException(
+                        "Error on shard " + entry.getKey() + ": " + e.getCause().getMessage(), e.getCause());
+                if (failure == null) {
+                    failure = shardFailure;
+                } else {
+                    failure.addSuppressed(shardFailure);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for shard " + entry.getKey(), e);
+            }
+        }
+        // every task is waited for so no shard connection is still in use when this returns
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * K-way merge of the sorted shard results on the ORDER BY columns, then TOP
+     */
+    private static ArrayList<Object> merge(SelectQuery query, List<SelectQuery.Result> results) throws SQLException {
+        int top = query.getTop();
+        List<SelectQuery.Order> orders = query.getOrders();
+        ArrayList<Object> merged = new ArrayList<>();
+        if (orders.isEmpty() || results.isEmpty()) {
+            for (SelectQuery.Result result : results) {
+                merged.addAll(result.rows());
+            }
+            if (top >= 0 && merged.size() > top) {
+                merged.subList(top, merged.size()).clear();
+            }
+            return merged;
+        }
+
+        Comparator<Object[]> comparator = rowComparator(orders, results.get(0).columnNames());
+        // each entry is {result index, row index}
+        PriorityQueue<int[]> heads = new PriorityQueue<>((a, b) -> comparator.compare(
+                (Object[]) results.get(a[0]).rows().get(a[1]), (Object[]) results.get(b[0]).rows().get(b[1])));
+        for (int i = 0; i < results.size(); i++) {
+            if (!results.get(i).rows().isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        while (!heads.isEmpty() && (top < 0 || merged.size() < top)) {
+            int[] head = heads.poll();
+            List<Object> rows = results.get(head[0]).rows();
+            merged.add(rows.get(head[1]));
+            if (head[1] + 1 < rows.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return merged;
+    }
+
+    private static Comparator<Object[]> rowComparator(List<SelectQuery.Order> orders, List<String> columnNames)
+            throws SQLException {
+        Comparator<Object[]> comparator = null;
+        for (SelectQuery.Order order : orders) {
+            int index = columnIndex(columnNames, order.column());
+            Comparator<Object[]> byColumn = (a, b) -> compareValues(a[index], b[index]);
+            if (!order.ascending()) {
+                byColumn = byColumn.reversed();
+            }
+            comparator = comparator == null ? byColumn : comparator.thenComparing(byColumn);
+        }
+        return comparator;
+    }
+
+    private static int columnIndex(List<String> columnNames, String column) throws SQLException {
+        List<String> parts = SelectQuery.splitIdentifier(column);
+        String name = parts.get(parts.size() - 1);
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (columnNames.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new SQLException("ORDER BY column " + column + " must be selected to merge shard results");
+    }
+
+    /**
+     * Compare two values of one column, NULLs first like SQL Server
+     */
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == null) {
+            return -1;
+        }
+        if (b == null) {
+            return 1;
+        }
+        if (a instanceof String x && b instanceof String y) {
+            return foldString(x).compareTo(foldString(y));
+        }
+        if (a instanceof byte[] x && b instanceof byte[] y) {
+            return Arrays.compareUnsigned(x, y);
+        }
+        if (a instanceof Number x && b instanceof Number y && a.getClass() != b.getClass()) {
+            return new BigDecimal(x.toString()).compareTo(new BigDecimal(y.toString()));
+        }
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    /**
+     * Canonical bytes of a key, equal SQL values give equal bytes whatever their Java type
+     */
+    static byte[] canonicalKey(Object key) {
+        String canonical = switch (key) {
+            case null -> throw new IllegalArgumentException("Shard key must not be null");
+            case Byte b -> "i:" + b;
+            case Short s -> "i:" + s;
+            case Integer i -> "i:" + i;
+            case Long l -> "i:" + l;
+            case BigInteger i -> "i:" + i;
+            case BigDecimal d -> canonicalDecimal(d);
+            case String s -> "s:" + foldString(s);
+            case UUID u -> "u:" + u.toString().toLowerCase(Locale.ROOT);
+            case byte[] bytes -> "b:" + HexFormat.of().formatHex(bytes);
+            // datetime values have no zone, the driver reads them in the JVM zone
+            case Timestamp t -> "t:" + t.toLocalDateTime();
+            case java.sql.Date d -> "d:" + d.toLocalDate();
+            case Boolean b -> "i:" + (b ? 1 : 0);
+            default -> throw new IllegalArgumentException(
+                    "Unsupported shard key type: " + key.getClass().getName());
+        };
+        return canonical.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Form of a string under the default collation, case folded and without trailing spaces
+     */
+    private static String foldString(String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return value.substring(0, end).toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    private static String canonicalDecimal(BigDecimal value) {
+        BigDecimal stripped = value.signum() == 0 ? BigDecimal.ZERO : value.stripTrailingZeros();
+        // whole decimals hash like the integer of the same value
+        return stripped.scale() <= 0 ? "i:" + stripped.toBigIntegerExact() : "n:" + stripped.toPlainString();
+    }
+
+    private static long hash(byte[] value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value);
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            // MD5 is required on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
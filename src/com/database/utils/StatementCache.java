@@ -0,0 +1,116 @@
+package com.database.utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps prepared statements open for a single connection so repeated queries
+ * skip the prepare round trip and reuse the cached server plan.
+ *
+ * <p>
+ *     Least recently used statements are closed once the cache is full.
+ *     <br>
+ *     Not thread safe, like the Connection it wraps.
+ * </p>
+ */
+public class StatementCache implements AutoCloseable {
+    private static final int DEFAULT_MAX_STATEMENTS = 64;
+
+    private final Connection conn;
+    private final int maxStatements;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    public StatementCache(Connection conn) {
+        this(conn, DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * Create a cache for a connection
+     *
+     * @param conn
+     * @param maxStatements number of statements kept open
+     */
+    public StatementCache(Connection conn, int maxStatements) {
+        if (maxStatements < 1) {
+            throw new IllegalArgumentException("maxStatements must be at least 1");
+        }
+        this.conn = conn;
+        this.maxStatements = maxStatements;
+        // access order so iteration starts at the least recently used entry
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public Connection getConnection() {
+        return conn;
+    }
+
+    /**
+     * Get an open statement for the sql, preparing it on first use
+     *
+     * @param sql
+     * @return statement with cleared parameters, do not close it
+     * @throws SQLException
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    }
+
+    /**
+     * Get an open statement for the sql and cursor type, preparing it on first use
+     *
+     * @param sql
+     * @param resultSetType        a ResultSet or SQLServerResultSet type
+     * @param resultSetConcurrency
+     * @return statement with cleared parameters, do not close it
+     * @throws SQLException
+     */
+    public PreparedStatement prepare(String sql, int resultSetType, int resultSetConcurrency) throws SQLException {
+        String key = resultSetType + ":" + resultSetConcurrency + ":" + sql;
+        PreparedStatement ps = statements.get(key);
+        if (ps != null && !ps.isClosed()) {
+            ps.clearParameters();
+            return ps;
+        }
+        ps = conn.prepareStatement(sql, resultSetType, resultSetConcurrency);
+        statements.put(key, ps);
+        evictOverflow();
+        return ps;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > maxStatements && it.hasNext()) {
+            PreparedStatement evicted = it.next().getValue();
+            it.remove();
+            closeQuietly(evicted);
+        }
+    }
+
+    /**
+     * Close every cached statement, the connection stays open
+     */
+    @Override
+    public void close() {
+        for (PreparedStatement ps : statements.values()) {
+            closeQuietly(ps);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing Statement: " + e.getMessage());
+        }
+    }
+}
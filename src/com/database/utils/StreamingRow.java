@@ -0,0 +1,214 @@
+package com.database.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Row view over an open ResultSet that does not materialise large column values.
+ *
+ * <p>
+ *     LOB columns (VARBINARY(MAX), NVARCHAR(MAX), VARCHAR(MAX), XML, TEXT, IMAGE...)
+ *     are detected from the ResultSetMetaData and handed out as lazily read
+ *     InputStream / Reader handles, or copied straight to a sink.
+ *     <br>
+ *     Handles are only valid while the row is current, and columns should be
+ *     read from left to right so the driver can stream them with adaptive buffering.
+ * </p>
+ */
+public class StreamingRow {
+    // Largest non MAX VARCHAR/VARBINARY in SQL Server, anything bigger is a LOB
+    private static final int MAX_INLINE_PRECISION = 8000;
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private final ResultSet rs;
+    private final ResultSetMetaData metaData;
+    private final int columnCount;
+    private final boolean[] lobColumns;
+    private final boolean[] binaryColumns;
+
+    /**
+     * Create a row view for a ResultSet, columns are classified once
+     *
+     * @param rs
+     * @throws SQLException
+     */
+    StreamingRow(ResultSet rs) throws SQLException {
+        this.rs = rs;
+        this.metaData = rs.getMetaData();
+        this.columnCount = metaData.getColumnCount();
+        this.lobColumns = new boolean[columnCount + 1];
+        this.binaryColumns = new boolean[columnCount + 1];
+        for (int i = 1; i <= columnCount; i++) {
+            lobColumns[i] = isLobColumn(metaData, i);
+            binaryColumns[i] = isBinaryColumn(metaData, i);
+        }
+    }
+
+    /**
+     * Checks if a column holds large values that should be streamed
+     *
+     * @param metaData
+     * @param column   1-indexed column
+     * @return true if the column is a LOB
+     * @throws SQLException
+     */
+    public static boolean isLobColumn(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.BLOB, Types.CLOB, Types.NCLOB, Types.SQLXML,
+                 Types.LONGVARBINARY, Types.LONGVARCHAR, Types.LONGNVARCHAR:
+                return true;
+            case Types.VARBINARY, Types.VARCHAR, Types.NVARCHAR:
+                // MAX columns report a precision of 2^31-1 (or 2^30-1 for NVARCHAR)
+                int precision = metaData.getPrecision(column);
+                return precision <= 0 || precision > MAX_INLINE_PRECISION;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBinaryColumn(ResultSetMetaData metaData, int column) throws SQLException {
+        int type = metaData.getColumnType(column);
+        return type == Types.BLOB || type == Types.LONGVARBINARY
+                || type == Types.VARBINARY || type == Types.BINARY;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public String getColumnName(int column) throws SQLException {
+        return metaData.getColumnName(column);
+    }
+
+    /**
+     * Get the JDBC type of a column
+     *
+     * @param column 1-indexed column
+     * @return a java.sql.Types constant
+     * @throws SQLException
+     */
+    public int getColumnType(int column) throws SQLException {
+        return metaData.getColumnType(column);
+    }
+
+    /**
+     * Direct access for typed getters that avoid boxing
+     *
+     * @return the underlying ResultSet positioned on this row
+     */
+    ResultSet getResultSet() {
+        return rs;
+    }
+
+    public boolean isLob(int column) {
+        return lobColumns[column];
+    }
+
+    public boolean isBinary(int column) {
+        return binaryColumns[column];
+    }
+
+    /**
+     * Get the value of a column
+     *
+     * @param column 1-indexed column
+     * @return the value for regular columns, an InputStream for binary LOBs
+     * or a Reader for character LOBs
+     * @throws SQLException
+     */
+    public Object getValue(int column) throws SQLException {
+        if (!lobColumns[column]) {
+            return rs.getObject(column);
+        }
+        return binaryColumns[column] ? rs.getBinaryStream(column) : rs.getCharacterStream(column);
+    }
+
+    /**
+     * Lazily read a column as bytes
+     *
+     * @param column 1-indexed column
+     * @return stream over the value, null if the value is NULL
+     * @throws SQLException
+     */
+    public InputStream getBinaryStream(int column) throws SQLException {
+        return rs.getBinaryStream(column);
+    }
+
+    /**
+     * Lazily read a column as characters
+     *
+     * @param column 1-indexed column
+     * @return reader over the value, null if the value is NULL
+     * @throws SQLException
+     */
+    public Reader getCharacterStream(int column) throws SQLException {
+        return rs.getCharacterStream(column);
+    }
+
+    /**
+     * Copy a column straight to a byte sink, character columns are written as UTF-8
+     *
+     * @param column 1-indexed column
+     * @param out    sink, it is flushed but not closed
+     * @return number of bytes (binary) or chars (character) copied, -1 if the value is NULL
+     * @throws SQLException
+     * @throws IOException
+     */
+    public long writeTo(int column, OutputStream out) throws SQLException, IOException {
+        if (!binaryColumns[column]) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            long copied = writeTo(column, writer);
+            writer.flush();
+            return copied;
+        }
+        try (InputStream in = rs.getBinaryStream(column)) {
+            if (in == null) {
+                return -1;
+            }
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+            }
+            out.flush();
+            return total;
+        }
+    }
+
+    /**
+     * Copy a character column straight to a character sink
+     *
+     * @param column 1-indexed column
+     * @param out    sink, it is flushed but not closed
+     * @return number of chars copied, -1 if the value is NULL
+     * @throws SQLException
+     * @throws IOException
+     */
+    public long writeTo(int column, Writer out) throws SQLException, IOException {
+        try (Reader in = rs.getCharacterStream(column)) {
+            if (in == null) {
+                return -1;
+            }
+            char[] buffer = new char[COPY_BUFFER_SIZE];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                total += read;
+            }
+            out.flush();
+            return total;
+        }
+    }
+}
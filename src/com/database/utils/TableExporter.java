@@ -0,0 +1,518 @@
+package com.database.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams a table or query to a file or channel as CSV or a compact binary format.
+ *
+ * <p>
+ *     Values are encoded straight into one reused direct ByteBuffer: integers are written
+ *     digit by digit, text is read through the column Reader and UTF-8 encoded in place,
+ *     binary is copied from the column InputStream. Only other types (decimals, dates,
+ *     floats...) go through getString. Output can be gzip compressed. Malformed text such
+ *     as an unpaired surrogate is written as the replacement character U+FFFD.
+ *     <br>
+ *     CSV: header line with the column names, integers, bits, decimals, floats and dates
+ *     are unquoted, every other value is quoted with quotes doubled, NULL is an empty
+ *     unquoted field, binary is written as 0x hex.
+ *     <br>
+ *     Binary, big endian:
+ *     <ul>
+ *     <li>Header: "JDBX", version byte, int16 column count, then per column int32 JDBC type,
+ *     int16 name length and the UTF-8 name</li>
+ *     <li>Rows: byte 1 followed by the values, the end of data is byte 0</li>
+ *     <li>Integer and bit columns: byte 0 for NULL or byte 1 and an int64</li>
+ *     <li>Other columns: int32 -1 for NULL, otherwise chunks of int32 length and bytes
+ *     closed by int32 0, text is UTF-8</li>
+ *     </ul>
+ *     <br>
+ *     A failed export returns -1 and writes no end of data marker, so a truncated file
+ *     never reads as complete.
+ *     <br>
+ *     Not thread safe, buffers are reused across exports of the same exporter.
+ * </p>
+ */
+public class TableExporter {
+
+    /**
+     * Output formats
+     */
+    public enum Format {
+        CSV,
+        BINARY
+    }
+
+    private enum Kind {
+        INTEGER,
+        BIT,
+        TEXT,
+        BINARY,
+        // decimals, floats and dates, never holding quotes or commas
+        PLAIN,
+        OTHER
+    }
+
+    private static final byte[] MAGIC = {'J', 'D', 'B', 'X'};
+    private static final byte VERSION = 1;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 8192;
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    // U+FFFD in UTF-8, written for unpaired surrogates
+    private static final byte[] REPLACEMENT = {(byte) 0xEF, (byte) 0xBF, (byte) 0xBD};
+
+    private final Format format;
+    private final boolean compress;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private final char[] charChunk = new char[CHAR_BUFFER_SIZE - 1];
+    private final byte[] byteChunk = new byte[CHAR_BUFFER_SIZE];
+    private final byte[] digits = new byte[20];
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+            .replaceWith(REPLACEMENT);
+
+    private WritableByteChannel channel;
+    // start of the open binary chunk, -1 when no chunk is open
+    private int chunkStart = -1;
+
+    /**
+     * Create an exporter
+     *
+     * @param format
+     * @param compress gzip the output
+     */
+    public TableExporter(Format format, boolean compress) {
+        this.format = format;
+        this.compress = compress;
+    }
+
+    /**
+     * Export a whole table to a file, the file is replaced
+     *
+     * @param conn
+     * @param tableName
+     * @param file
+     * @return number of rows exported, -1 if the export failed
+     */
+    public long exportTable(Connection conn, String tableName, Path file) {
+        return export(conn, SelectQuery.from(tableName), file);
+    }
+
+    /**
+     * Export a query to a file, the file is replaced and deleted again if the export fails
+     *
+     * @param conn
+     * @param query
+     * @param file
+     * @return number of rows exported, -1 if the export failed
+     */
+    public long export(Connection conn, SelectQuery query, Path file) {
+        long rows = -1;
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            rows = export(conn, query, fileChannel);
+        } catch (IOException e) {
+            System.err.println("Error exporting to " + file + ": " + e.getMessage());
+            rows = -1;
+        }
+        if (rows < 0) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Error deleting partial export " + file + ": " + e.getMessage());
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Export a query to a channel, the channel is left open.
+     * On failure the data already written stays in the channel without an end of data marker.
+     *
+     * @param conn
+     * @param query
+     * @param target
+     * @return number of rows exported, -1 if the export failed
+     */
+    public long export(Connection conn, SelectQuery query, WritableByteChannel target) {
+        GzipStream gzip = null;
+        long rows;
+        try {
+            if (compress) {
+                gzip = new GzipStream(Channels.newOutputStream(target), BUFFER_SIZE);
+                channel = Channels.newChannel(gzip);
+            } else {
+                channel = target;
+            }
+            buffer.clear();
+
+            rows = query.streamOrThrow(conn, new SQLStatements.RowHandler() {
+                private Kind[] columnKinds;
+
+                @Override
+                public void start(StreamingRow row) throws SQLException, IOException {
+                    columnKinds = classify(row);
+                    writeHeader(row);
+                }
+
+                @Override
+                public void handle(StreamingRow row) throws SQLException, IOException {
+                    writeRow(row, columnKinds);
+                }
+            });
+
+            if (format == Format.BINARY) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+            flushBuffer();
+            if (gzip != null) {
+                gzip.finish();
+            }
+            System.out.println(String.format("Exported %d rows from %s as %s", rows, query.getTableName(), format));
+        } catch (SQLException | IOException e) {
+            // the buffered tail, possibly an open chunk, is dropped with the end of data marker
+            System.err.println("Error exporting " + query.getTableName() + ": " + e.getMessage());
+            rows = -1;
+        } finally {
+            if (gzip != null) {
+                gzip.release();
+            }
+            channel = null;
+            chunkStart = -1;
+            encoder.reset();
+            chars.clear();
+        }
+        return rows;
+    }
+
+    private static Kind[] classify(StreamingRow row) throws SQLException {
+        Kind[] kinds = new Kind[row.getColumnCount() + 1];
+        for (int i = 1; i <= row.getColumnCount(); i++) {
+            kinds[i] = switch (row.getColumnType(i)) {
+                case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT -> Kind.INTEGER;
+                case Types.BIT, Types.BOOLEAN -> Kind.BIT;
+                case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR,
+                     Types.LONGNVARCHAR, Types.CLOB, Types.NCLOB, Types.SQLXML -> Kind.TEXT;
+                case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> Kind.BINARY;
+                case Types.DECIMAL, Types.NUMERIC, Types.FLOAT, Types.REAL, Types.DOUBLE,
+                     Types.DATE, Types.TIME, Types.TIMESTAMP, Types.TIME_WITH_TIMEZONE,
+                     Types.TIMESTAMP_WITH_TIMEZONE, microsoft.sql.Types.DATETIMEOFFSET -> Kind.PLAIN;
+                default -> Kind.OTHER;
+            };
+        }
+        return kinds;
+    }
+
+    private void writeHeader(StreamingRow row) throws SQLException, IOException {
+        int columnCount = row.getColumnCount();
+        if (format == Format.CSV) {
+            for (int i = 1; i <= columnCount; i++) {
+                if (i > 1) {
+                    putByte((byte) ',');
+                }
+                writeCsvString(row.getColumnName(i));
+            }
+            putByte((byte) '\n');
+            return;
+        }
+
+        ensure(MAGIC.length + 3);
+        buffer.put(MAGIC).put(VERSION).putShort((short) columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            byte[] name = row.getColumnName(i).getBytes(StandardCharsets.UTF_8);
+            ensure(6 + name.length);
+            buffer.putInt(row.getColumnType(i)).putShort((short) name.length).put(name);
+        }
+    }
+
+    private void writeRow(StreamingRow row, Kind[] kinds) throws SQLException, IOException {
+        ResultSet rs = row.getResultSet();
+        boolean csv = format == Format.CSV;
+        if (!csv) {
+            putByte((byte) 1);
+        }
+        for (int i = 1; i < kinds.length; i++) {
+            if (csv && i > 1) {
+                putByte((byte) ',');
+            }
+            switch (kinds[i]) {
+                case INTEGER -> writeInteger(rs.getLong(i), rs.wasNull());
+                case BIT -> writeInteger(rs.getBoolean(i) ? 1 : 0, rs.wasNull());
+                case TEXT -> writeText(rs.getCharacterStream(i));
+                case BINARY -> writeBinary(rs.getBinaryStream(i));
+                case PLAIN -> writeOther(rs.getString(i), false);
+                default -> writeOther(rs.getString(i), true);
+            }
+        }
+        if (csv) {
+            putByte((byte) '\n');
+        }
+    }
+
+    private void writeInteger(long value, boolean isNull) throws IOException {
+        if (format == Format.BINARY) {
+            ensure(9);
+            if (isNull) {
+                buffer.put((byte) 0);
+            } else {
+                buffer.put((byte) 1).putLong(value);
+            }
+            return;
+        }
+        if (isNull) {
+            return;
+        }
+        // digits are produced right to left, staying negative so Long.MIN_VALUE does not overflow
+        int position = digits.length;
+        long remaining = value;
+        do {
+            digits[--position] = (byte) ('0' + Math.abs((int) (remaining % 10)));
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            digits[--position] = '-';
+        }
+        ensure(digits.length - position);
+        buffer.put(digits, position, digits.length - position);
+    }
+
+    private void writeText(Reader reader) throws IOException {
+        if (reader == null) {
+            writeNull();
+            return;
+        }
+        try (reader) {
+            boolean csv = format == Format.CSV;
+            if (csv) {
+                putByte((byte) '"');
+            } else {
+                beginChunk();
+            }
+            int read;
+            while ((read = reader.read(charChunk)) != -1) {
+                if (!csv) {
+                    encodeChars(charChunk, 0, read);
+                    continue;
+                }
+                // double the quotes, everything else is encoded as is
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (charChunk[i] == '"') {
+                        encodeChars(charChunk, start, i + 1 - start);
+                        putByte((byte) '"');
+                        start = i + 1;
+                    }
+                }
+                encodeChars(charChunk, start, read - start);
+            }
+            finishChars();
+            if (csv) {
+                putByte((byte) '"');
+            } else {
+                endChunk();
+                ensure(4);
+                buffer.putInt(0);
+            }
+        }
+    }
+
+    private void writeBinary(InputStream in) throws IOException {
+        if (in == null) {
+            writeNull();
+            return;
+        }
+        try (in) {
+            boolean csv = format == Format.CSV;
+            if (csv) {
+                ensure(2);
+                buffer.put((byte) '0').put((byte) 'x');
+            }
+            int read;
+            while ((read = in.read(byteChunk)) != -1) {
+                if (csv) {
+                    for (int i = 0; i < read; i++) {
+                        ensure(2);
+                        buffer.put(HEX[(byteChunk[i] >> 4) & 0xF]).put(HEX[byteChunk[i] & 0xF]);
+                    }
+                } else if (read > 0) {
+                    ensure(4 + read);
+                    buffer.putInt(read).put(byteChunk, 0, read);
+                }
+            }
+            if (!csv) {
+                ensure(4);
+                buffer.putInt(0);
+            }
+        }
+    }
+
+    private void writeOther(String value, boolean quoted) throws IOException {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        if (format == Format.CSV) {
+            if (quoted) {
+                writeCsvString(value);
+            } else {
+                encodeSequence(value);
+            }
+            return;
+        }
+        beginChunk();
+        encodeSequence(value);
+        endChunk();
+        ensure(4);
+        buffer.putInt(0);
+    }
+
+    private void writeCsvString(String value) throws IOException {
+        putByte((byte) '"');
+        encodeSequence(value.replace("\"", "\"\""));
+        putByte((byte) '"');
+    }
+
+    private void writeNull() throws IOException {
+        if (format == Format.BINARY) {
+            ensure(4);
+            buffer.putInt(-1);
+        }
+    }
+
+    private void encodeSequence(String value) throws IOException {
+        encode(CharBuffer.wrap(value), true);
+        flushEncoder();
+    }
+
+    /**
+     * Encode chars into the buffer, an unpaired high surrogate at the end is kept for the next call
+     */
+    private void encodeChars(char[] source, int offset, int length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        chars.put(source, offset, length);
+        chars.flip();
+        encode(chars, false);
+        chars.compact();
+    }
+
+    private void finishChars() throws IOException {
+        chars.flip();
+        encode(chars, true);
+        flushEncoder();
+        chars.clear();
+    }
+
+    private void encode(CharBuffer source, boolean endOfInput) throws IOException {
+        CoderResult result;
+        while ((result = encoder.encode(source, buffer, endOfInput)).isOverflow()) {
+            onOverflow();
+        }
+        if (result.isError()) {
+            encoder.reset();
+            result.throwException();
+        }
+    }
+
+    private void flushEncoder() throws IOException {
+        CoderResult result;
+        while ((result = encoder.flush(buffer)).isOverflow()) {
+            onOverflow();
+        }
+        encoder.reset();
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    /**
+     * Buffer is full while encoding, close the open chunk if any and flush
+     */
+    private void onOverflow() throws IOException {
+        boolean chunked = chunkStart >= 0;
+        if (chunked) {
+            endChunk();
+        }
+        flushBuffer();
+        if (chunked) {
+            beginChunk();
+        }
+    }
+
+    private void beginChunk() throws IOException {
+        // leave room for the length and a few encoded chars
+        ensure(16);
+        chunkStart = buffer.position();
+        buffer.position(chunkStart + 4);
+    }
+
+    private void endChunk() {
+        int length = buffer.position() - chunkStart - 4;
+        if (length == 0) {
+            // a zero length would read as the end of the value
+            buffer.position(chunkStart);
+        } else {
+            buffer.putInt(chunkStart, length);
+        }
+        chunkStart = -1;
+    }
+
+    private void putByte(byte value) throws IOException {
+        ensure(1);
+        buffer.put(value);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (chunkStart >= 0) {
+            throw new IllegalStateException("Chunk length not written before flushing");
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Gzip stream whose native zlib memory can be freed without closing the target
+     * and, after a failure, without writing a trailer that would make the output look complete
+     */
+    private static final class GzipStream extends GZIPOutputStream {
+        GzipStream(OutputStream out, int size) throws IOException {
+            super(out, size);
+        }
+
+        void release() {
+            def.end();
+        }
+    }
+}